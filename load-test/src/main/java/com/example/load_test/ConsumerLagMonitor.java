@@ -0,0 +1,92 @@
+package com.example.load_test;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records not yet committed by product-service's consumer group (log end offset minus committed offset,
+ * summed over the order topics), sampled in the background while the load runs.
+ */
+final class ConsumerLagMonitor implements AutoCloseable {
+
+    private static final long SAMPLE_INTERVAL_MS = 500;
+
+    private final AdminClient admin;
+    private final String consumerGroup;
+    private final Map<TopicPartition, OffsetSpec> partitions = new HashMap<>();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    ConsumerLagMonitor(String brokers, String consumerGroup, List<String> topics, int partitionsPerTopic) {
+        this.admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, brokers));
+        this.consumerGroup = consumerGroup;
+        for (String topic : topics) {
+            for (int partition = 0; partition < partitionsPerTopic; partition++) {
+                partitions.put(new TopicPartition(topic, partition), OffsetSpec.latest());
+            }
+        }
+        sampler.scheduleWithFixedDelay(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    long currentLag() throws ExecutionException, InterruptedException {
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(consumerGroup)
+                .partitionsToOffsetAndMetadata().get();
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(partitions).all().get();
+
+        long lag = 0;
+        for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+            OffsetAndMetadata offset = committed.get(end.getKey());
+            lag += end.getValue().offset() - (offset != null ? offset.offset() : 0);
+        }
+        return lag;
+    }
+
+    long maxLag() {
+        return maxLag.get();
+    }
+
+    /**
+     * @return false if the lag was still above zero when the timeout ran out.
+     */
+    boolean awaitDrained(Duration timeout) throws ExecutionException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (currentLag() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(SAMPLE_INTERVAL_MS);
+        }
+        return true;
+    }
+
+    private void sample() {
+        try {
+            long lag = currentLag();
+            maxLag.accumulateAndGet(lag, Math::max);
+        } catch (ExecutionException e) {
+            // Group not created yet or broker busy, try again next time
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        admin.close();
+    }
+}
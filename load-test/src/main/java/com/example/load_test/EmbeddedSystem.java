@@ -0,0 +1,128 @@
+package com.example.load_test;
+
+import com.example.order_service.OrderServiceApplication;
+import com.example.product_service.ProductServiceApplication;
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.service.ProductService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An embedded Kafka broker with product-service and order-service running against it in this JVM,
+ * each on a random port with its own in-memory database.
+ *
+ * Both service jars contain an application.properties, so each service is pointed at its own
+ * file under loadtest/ instead of whichever one comes first on the classpath.
+ */
+final class EmbeddedSystem implements AutoCloseable {
+
+    static final List<String> TOPICS = List.of("order_placed", "order_cancelled");
+
+    private final EmbeddedKafkaBroker broker;
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private ConfigurableApplicationContext productService;
+    private ConfigurableApplicationContext orderService;
+
+    private EmbeddedSystem(EmbeddedKafkaBroker broker) {
+        this.broker = broker;
+    }
+
+    static EmbeddedSystem start(LoadTestSettings settings) {
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, settings.kafkaPartitions(), TOPICS.toArray(String[]::new));
+        broker.afterPropertiesSet();
+        EmbeddedSystem system = new EmbeddedSystem(broker);
+        try {
+            // Product Service first, order-service needs its URL
+            system.productService = system.startService(ProductServiceApplication.class, "product-service",
+                    settings, LoadTestSettings.PRODUCT_SERVICE_PREFIX, Map.of());
+            system.orderService = system.startService(OrderServiceApplication.class, "order-service",
+                    settings, LoadTestSettings.ORDER_SERVICE_PREFIX,
+                    Map.of("product.service.url", system.productServiceUrl() + "/api/products"));
+            return system;
+        } catch (RuntimeException e) {
+            system.close();
+            throw e;
+        }
+    }
+
+    private ConfigurableApplicationContext startService(Class<?> application, String name, LoadTestSettings settings,
+                                                        String overridePrefix, Map<String, String> wiring) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.config.location", "classpath:/loadtest/" + name + ".properties");
+        properties.put("server.port", "0");
+        properties.put("spring.kafka.bootstrap-servers", broker.getBrokersAsString());
+        properties.put("spring.threads.virtual.enabled", String.valueOf(settings.virtualThreads()));
+        properties.putAll(wiring);
+        properties.putAll(settings.serviceOverrides(overridePrefix));
+
+        // Command-line arguments win over the properties file
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(application).run(args);
+        contexts.add(context);
+        return context;
+    }
+
+    /**
+     * Creates catalog products SKU-LT-0000.. with the same stock each.
+     *
+     * @return Initial stock per skuCode.
+     */
+    Map<String, Integer> seedCatalog(int size, int stock) {
+        ProductService products = productService.getBean(ProductService.class);
+        Map<String, Integer> initialStock = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String skuCode = String.format("SKU-LT-%04d", i);
+            products.createProduct(new ProductDto(null, "Load test product " + i, null, skuCode, 19.99, stock));
+            initialStock.put(skuCode, stock);
+        }
+        return initialStock;
+    }
+
+    String orderServiceUrl() {
+        return baseUrl(orderService);
+    }
+
+    String productServiceUrl() {
+        return baseUrl(productService);
+    }
+
+    String brokers() {
+        return broker.getBrokersAsString();
+    }
+
+    String consumerGroup() {
+        return productService.getEnvironment().getRequiredProperty("spring.kafka.consumer.group-id");
+    }
+
+    JdbcTemplate orderDatabase() {
+        return new JdbcTemplate(orderService.getBean(DataSource.class));
+    }
+
+    JdbcTemplate productDatabase() {
+        return new JdbcTemplate(productService.getBean(DataSource.class));
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port");
+    }
+
+    @Override
+    public void close() {
+        // Order Service first so the outbox relay stops before the broker goes away
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            contexts.get(i).close();
+        }
+        broker.destroy();
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.load_test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the configured mix of /create, /cancel/{id} and /availability requests for a fixed time,
+ * either at a target rate (open model) or from a fixed number of workers (closed model).
+ *
+ * Requests run on virtual threads. In the open model every request has a scheduled start time and its
+ * latency is measured from there, so a slow system is charged for the requests that queued behind
+ * it instead of being sampled less often.
+ */
+final class LoadDriver {
+
+    enum Operation {
+        CREATE, CANCEL, AVAILABILITY
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final BigDecimal PRICE = new BigDecimal("19.99");
+
+    private final LoadTestSettings settings;
+    private final String orderServiceUrl;
+    private final String productServiceUrl;
+    private final List<String> skuCodes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    // Cumulative weights of CREATE, CANCEL, AVAILABILITY
+    private final int[] mix;
+
+    // Orders placed during the run that haven't been cancelled yet, shared across phases
+    private final Queue<Long> cancellableOrders = new ConcurrentLinkedQueue<>();
+
+    LoadDriver(LoadTestSettings settings, String orderServiceUrl, String productServiceUrl, List<String> skuCodes) {
+        this.settings = settings;
+        this.orderServiceUrl = orderServiceUrl;
+        this.productServiceUrl = productServiceUrl;
+        this.skuCodes = skuCodes;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        int create = settings.mixWeight("create");
+        int cancel = create + settings.mixWeight("cancel");
+        int availability = cancel + settings.mixWeight("availability");
+        if (availability <= 0) {
+            throw new IllegalArgumentException("At least one of mix.create, mix.cancel, mix.availability must be positive");
+        }
+        this.mix = new int[]{create, cancel, availability};
+    }
+
+    /**
+     * Runs one phase (warm-up or measurement) and waits for its requests to finish.
+     */
+    Map<Operation, OperationStats> run(Duration duration) throws InterruptedException {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats(operation.name().toLowerCase()));
+        }
+        if (settings.rate() > 0) {
+            runOpen(duration, stats);
+        } else {
+            runClosed(duration, stats);
+        }
+        return stats;
+    }
+
+    private void runOpen(Duration duration, Map<Operation, OperationStats> stats) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        Semaphore inFlight = new Semaphore(settings.maxInFlight());
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                if (scheduledAt >= end) {
+                    break;
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        execute(nextOperation(), scheduledAt, stats);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void runClosed(Duration duration, Map<Operation, OperationStats> stats) {
+        long end = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < settings.concurrency(); worker++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        execute(nextOperation(), System.nanoTime(), stats);
+                    }
+                });
+            }
+        }
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(mix[2]);
+        return pick < mix[0] ? Operation.CREATE : pick < mix[1] ? Operation.CANCEL : Operation.AVAILABILITY;
+    }
+
+    private void execute(Operation operation, long startNanos, Map<Operation, OperationStats> stats) {
+        Long orderId = operation == Operation.CANCEL ? cancellableOrders.poll() : null;
+        if (operation == Operation.CANCEL && orderId == null) {
+            operation = Operation.CREATE;
+        }
+        OperationStats operationStats = stats.get(operation);
+        try {
+            switch (operation) {
+                case CREATE -> createOrder(startNanos, operationStats);
+                case CANCEL -> cancelOrder(orderId, startNanos, operationStats);
+                case AVAILABILITY -> checkAvailability(startNanos, operationStats);
+            }
+        } catch (IOException e) {
+            operationStats.failed(System.nanoTime() - startNanos, e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void createOrder(long startNanos, OperationStats stats) throws IOException, InterruptedException {
+        List<Map<String, Object>> items = basket(true);
+        BigDecimal total = items.stream()
+                .map(item -> PRICE.multiply(BigDecimal.valueOf((Integer) item.get("quantity"))))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("totalPrice", total);
+        order.put("orderItems", items);
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(orderServiceUrl + "/create"))
+                .POST(json(order)));
+        long latency = System.nanoTime() - startNanos;
+        if (response.statusCode() == 201) {
+            JsonNode body = objectMapper.readTree(response.body());
+            cancellableOrders.add(body.get("orderId").asLong());
+            stats.succeeded(latency);
+        } else if (response.statusCode() == 400) {
+            // Nothing in the basket was available
+            stats.rejected(latency);
+        } else {
+            stats.failed(latency, "HTTP " + response.statusCode());
+        }
+    }
+
+    private void cancelOrder(long orderId, long startNanos, OperationStats stats) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(orderServiceUrl + "/cancel/" + orderId))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+        long latency = System.nanoTime() - startNanos;
+        if (response.statusCode() == 200) {
+            stats.succeeded(latency);
+        } else {
+            stats.failed(latency, "HTTP " + response.statusCode());
+        }
+    }
+
+    private void checkAvailability(long startNanos, OperationStats stats) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(productServiceUrl + "/api/products/availability"))
+                .POST(json(basket(false))));
+        long latency = System.nanoTime() - startNanos;
+        if (response.statusCode() == 200) {
+            stats.succeeded(latency);
+        } else {
+            stats.failed(latency, "HTTP " + response.statusCode());
+        }
+    }
+
+    // 1..basket.max-items distinct SKUs, 1..basket.max-quantity units each
+    private List<Map<String, Object>> basket(boolean orderLines) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = Math.min(1 + random.nextInt(settings.basketMaxItems()), skuCodes.size());
+        int first = random.nextInt(skuCodes.size());
+        int step = 1 + random.nextInt(Math.max(1, skuCodes.size() / size));
+
+        List<Map<String, Object>> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("skuCode", skuCodes.get((first + i * step) % skuCodes.size()));
+            item.put("quantity", 1 + random.nextInt(settings.basketMaxQuantity()));
+            if (orderLines) {
+                item.put("productName", "Load test product");
+                item.put("price", PRICE);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) throws IOException {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request
+                        .header("Content-Type", "application/json")
+                        .timeout(REQUEST_TIMEOUT)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
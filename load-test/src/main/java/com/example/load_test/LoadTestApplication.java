@@ -0,0 +1,152 @@
+package com.example.load_test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Repeatable throughput run of the order → inventory flow on one machine, no external services needed:
+ * boots both services in-process (see EmbeddedSystem), drives load (see LoadDriver), waits for every
+ * order event to be applied and audits the stock.
+ *
+ * With compare-threads=true the run is done twice, /create only from compare.concurrency workers, once with
+ * platform and once with virtual threads in the services, and the two are printed side by side.
+ *
+ * Exits with 1 if the events didn't drain in time or the stock doesn't add up.
+ */
+public class LoadTestApplication {
+
+    private static final String OUTBOX_COUNT_SQL = "SELECT COUNT(*) FROM order_outbox";
+
+    // One measured run: its settings, the summary of each operation, and whether it drained and audited clean
+    private record RunResult(LoadTestSettings settings, Map<LoadDriver.Operation, OperationStats.Summary> summaries,
+                             double elapsedSeconds, StockAudit.Result audit, boolean passed) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.load(args);
+        boolean passed;
+        if (settings.compareThreads()) {
+            // Same closed-model /create load twice, each against a freshly started system
+            LoadTestSettings createOnly = settings.with(Map.of(
+                    "rate", "0",
+                    "concurrency", String.valueOf(settings.compareConcurrency()),
+                    "mix.create", "1",
+                    "mix.cancel", "0",
+                    "mix.availability", "0"));
+            RunResult platform = run(createOnly.with(Map.of("virtual-threads", "false")));
+            RunResult virtual = run(createOnly.with(Map.of("virtual-threads", "true")));
+            printComparison(settings.compareConcurrency(), platform, virtual);
+            passed = platform.passed() && virtual.passed();
+        } else {
+            passed = run(settings).passed();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static RunResult run(LoadTestSettings settings) throws Exception {
+        try (EmbeddedSystem system = EmbeddedSystem.start(settings);
+             ConsumerLagMonitor lag = new ConsumerLagMonitor(system.brokers(), system.consumerGroup(),
+                     EmbeddedSystem.TOPICS, settings.kafkaPartitions())) {
+
+            Map<String, Integer> initialStock = system.seedCatalog(settings.catalogSize(), settings.initialStock());
+            LoadDriver driver = new LoadDriver(settings, system.orderServiceUrl(), system.productServiceUrl(),
+                    new ArrayList<>(initialStock.keySet()));
+
+            if (settings.warmupSeconds() > 0) {
+                System.out.printf("Warming up for %d s%n", settings.warmupSeconds());
+                driver.run(Duration.ofSeconds(settings.warmupSeconds()));
+            }
+            System.out.printf("Running for %d s%n", settings.durationSeconds());
+            long started = System.nanoTime();
+            Map<LoadDriver.Operation, OperationStats> stats = driver.run(Duration.ofSeconds(settings.durationSeconds()));
+            double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+            // Outbox relayed to Kafka, then every relayed event applied by product-service
+            long drainStarted = System.nanoTime();
+            Duration drainTimeout = Duration.ofSeconds(settings.drainTimeoutSeconds());
+            boolean drained = awaitOutboxEmpty(system.orderDatabase(), drainTimeout)
+                    && lag.awaitDrained(drainTimeout);
+            double drainSeconds = (System.nanoTime() - drainStarted) / 1e9;
+
+            StockAudit.Result audit = StockAudit.run(system.orderDatabase(), system.productDatabase(), initialStock);
+
+            // Summaries are taken once, they read the histograms' interval
+            Map<LoadDriver.Operation, OperationStats.Summary> summaries = new EnumMap<>(LoadDriver.Operation.class);
+            stats.forEach((operation, operationStats) -> summaries.put(operation, operationStats.summarize()));
+            printReport(settings, summaries.values(), elapsedSeconds, lag.maxLag(), drained, drainSeconds, audit);
+            return new RunResult(settings, summaries, elapsedSeconds, audit, drained && audit.consistent());
+        }
+    }
+
+    private static boolean awaitOutboxEmpty(JdbcTemplate orderDatabase, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (orderDatabase.queryForObject(OUTBOX_COUNT_SQL, Long.class) > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(200);
+        }
+        return true;
+    }
+
+    private static void printReport(LoadTestSettings settings, Collection<OperationStats.Summary> summaries, double elapsedSeconds,
+                                    long maxLag, boolean drained, double drainSeconds, StockAudit.Result audit) {
+        System.out.println();
+        System.out.printf("Load: %s, %d s measured after %d s warm-up, virtual threads %s%n",
+                settings.rate() > 0 ? settings.rate() + " req/s (open model)" : settings.concurrency() + " workers (closed model)",
+                settings.durationSeconds(), settings.warmupSeconds(), settings.virtualThreads() ? "on" : "off");
+        System.out.printf("%-13s %9s %9s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "ok", "rejected", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        long total = 0;
+        for (OperationStats.Summary summary : summaries) {
+            total += summary.total();
+            System.out.printf("%-13s %9d %9d %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    summary.name(), summary.total(), summary.succeeded(), summary.rejected(), summary.errorCount(),
+                    summary.total() / elapsedSeconds,
+                    summary.percentileMillis(50), summary.percentileMillis(95), summary.percentileMillis(99),
+                    summary.percentileMillis(99.9), summary.maxMillis());
+            summary.errors().forEach((cause, count) -> System.out.printf("    %s: %d%n", cause, count));
+        }
+        System.out.printf("Throughput: %.1f req/s%n", total / elapsedSeconds);
+
+        System.out.printf("Consumer lag: max %d records during the run, %s%n", maxLag,
+                drained ? String.format("drained %.1f s after the load stopped", drainSeconds)
+                        : "NOT drained within " + settings.drainTimeoutSeconds() + " s");
+
+        System.out.printf("Stock audit: %d SKUs, %d units in placed orders, %d oversold, %d mismatched -> %s%n",
+                audit.skus(), audit.unitsPlaced(), audit.oversold().size(), audit.mismatched().size(),
+                audit.consistent() ? "OK" : "FAILED");
+        audit.oversold().forEach(sku -> System.out.println("    oversold " + sku));
+        audit.mismatched().forEach(sku -> System.out.println("    mismatched " + sku));
+    }
+
+    private static void printComparison(int concurrency, RunResult platform, RunResult virtual) {
+        OperationStats.Summary onPlatform = platform.summaries().get(LoadDriver.Operation.CREATE);
+        OperationStats.Summary onVirtual = virtual.summaries().get(LoadDriver.Operation.CREATE);
+
+        System.out.println();
+        System.out.printf("Platform vs virtual threads: %d concurrent /create workers, %d s each%n",
+                concurrency, platform.settings().durationSeconds());
+        System.out.printf("%-12s %12s %12s%n", "", "platform", "virtual");
+        System.out.printf("%-12s %12.1f %12.1f%n", "req/s",
+                onPlatform.total() / platform.elapsedSeconds(), onVirtual.total() / virtual.elapsedSeconds());
+        System.out.printf("%-12s %12d %12d%n", "ok", onPlatform.succeeded(), onVirtual.succeeded());
+        System.out.printf("%-12s %12d %12d%n", "rejected", onPlatform.rejected(), onVirtual.rejected());
+        System.out.printf("%-12s %12d %12d%n", "errors", onPlatform.errorCount(), onVirtual.errorCount());
+        double[] percentiles = {50, 95, 99, 99.9};
+        String[] labels = {"p50 ms", "p95 ms", "p99 ms", "p99.9 ms"};
+        for (int i = 0; i < percentiles.length; i++) {
+            System.out.printf("%-12s %12.2f %12.2f%n", labels[i],
+                    onPlatform.percentileMillis(percentiles[i]), onVirtual.percentileMillis(percentiles[i]));
+        }
+        System.out.printf("%-12s %12.2f %12.2f%n", "max ms", onPlatform.maxMillis(), onVirtual.maxMillis());
+        System.out.printf("%-12s %12s %12s%n", "stock audit",
+                platform.audit().consistent() ? "OK" : "FAILED", virtual.audit().consistent() ? "OK" : "FAILED");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.load_test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of one run: loadtest.properties, overridden by "key=value" arguments ("--key=value" works too).
+ */
+final class LoadTestSettings {
+
+    static final String ORDER_SERVICE_PREFIX = "order-service.";
+    static final String PRODUCT_SERVICE_PREFIX = "product-service.";
+
+    private final Properties properties;
+
+    private LoadTestSettings(Properties properties) {
+        this.properties = properties;
+    }
+
+    static LoadTestSettings load(String[] args) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream defaults = LoadTestSettings.class.getResourceAsStream("/loadtest.properties")) {
+            properties.load(defaults);
+        }
+        for (String arg : args) {
+            String setting = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = setting.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            properties.setProperty(setting.substring(0, separator), setting.substring(separator + 1));
+        }
+        return new LoadTestSettings(properties);
+    }
+
+    int rate() {
+        return intValue("rate");
+    }
+
+    int concurrency() {
+        return intValue("concurrency");
+    }
+
+    int maxInFlight() {
+        return intValue("max-in-flight");
+    }
+
+    int warmupSeconds() {
+        return intValue("warmup-seconds");
+    }
+
+    int durationSeconds() {
+        return intValue("duration-seconds");
+    }
+
+    int mixWeight(String operation) {
+        return intValue("mix." + operation);
+    }
+
+    int catalogSize() {
+        return intValue("catalog.size");
+    }
+
+    int initialStock() {
+        return intValue("catalog.initial-stock");
+    }
+
+    int basketMaxItems() {
+        return intValue("basket.max-items");
+    }
+
+    int basketMaxQuantity() {
+        return intValue("basket.max-quantity");
+    }
+
+    int kafkaPartitions() {
+        return intValue("kafka.partitions");
+    }
+
+    boolean virtualThreads() {
+        return Boolean.parseBoolean(value("virtual-threads"));
+    }
+
+    int drainTimeoutSeconds() {
+        return intValue("drain-timeout-seconds");
+    }
+
+    boolean compareThreads() {
+        return Boolean.parseBoolean(value("compare-threads"));
+    }
+
+    int compareConcurrency() {
+        return intValue("compare.concurrency");
+    }
+
+    /**
+     * @return A copy of these settings with the given ones replaced.
+     */
+    LoadTestSettings with(Map<String, String> overrides) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        overrides.forEach(copy::setProperty);
+        return new LoadTestSettings(copy);
+    }
+
+    /**
+     * @return Service settings given with the prefix, as command-line arguments for that service.
+     */
+    Map<String, String> serviceOverrides(String prefix) {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(prefix))
+                .sorted()
+                .forEach(key -> overrides.put(key.substring(prefix.length()), properties.getProperty(key)));
+        return overrides;
+    }
+
+    private int intValue(String key) {
+        try {
+            return Integer.parseInt(value(key).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + key + " must be a number, was: " + value(key));
+        }
+    }
+
+    private String value(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing setting: " + key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.load_test;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latency of one operation type, safe to record from many threads.
+ */
+final class OperationStats {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final String name;
+    private final Recorder latency = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final LongAdder succeeded = new LongAdder();
+    // Expected refusals, e.g. /create answering 400 because the basket is out of stock
+    private final LongAdder rejected = new LongAdder();
+    // Unexpected status codes and I/O errors, by status code or exception name
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void succeeded(long latencyNanos) {
+        record(latencyNanos);
+        succeeded.increment();
+    }
+
+    void rejected(long latencyNanos) {
+        record(latencyNanos);
+        rejected.increment();
+    }
+
+    void failed(long latencyNanos, String cause) {
+        record(latencyNanos);
+        errors.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    private void record(long latencyNanos) {
+        latency.recordValue(Math.min(Math.max(latencyNanos, 0), MAX_LATENCY_NANOS));
+    }
+
+    /**
+     * Call once, after the run.
+     */
+    Summary summarize() {
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((cause, count) -> errorCounts.put(cause, count.sum()));
+        return new Summary(name, succeeded.sum(), rejected.sum(), errorCounts, latency.getIntervalHistogram());
+    }
+
+    record Summary(String name, long succeeded, long rejected, Map<String, Long> errors, Histogram latency) {
+
+        long errorCount() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        long total() {
+            return succeeded + rejected + errorCount();
+        }
+
+        double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return latency.getMaxValue() / 1_000_000.0;
+        }
+    }
+}
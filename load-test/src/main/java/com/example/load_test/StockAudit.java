@@ -0,0 +1,66 @@
+package com.example.load_test;
+
+import com.example.order_service.entity.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares product-service's stock with the orders order-service kept, once every event has been applied:
+ * each SKU must have its initial stock minus the units of its orders that hold stock.
+ * Those are ORDER_PLACED, CONFIRMED (saga) and PENDING, whose order_placed event product-service has applied
+ * by the time the events drained (its reply may still be on the way); cancelled and rejected orders hold none.
+ */
+final class StockAudit {
+
+    private static final String PLACED_UNITS_SQL = "SELECT i.product_id, SUM(i.quantity) FROM order_items i"
+            + " JOIN orders o ON o.id = i.order_id WHERE o.order_status IN ('" + OrderStatus.ORDER_PLACED.name()
+            + "', '" + OrderStatus.CONFIRMED.name() + "', '" + OrderStatus.PENDING.name() + "') GROUP BY i.product_id";
+    private static final String STOCK_SQL = "SELECT sku_code, quantity FROM products";
+
+    /**
+     * @param oversold SKUs with more units in stock-holding orders than they ever had
+     * @param mismatched SKUs whose stock differs from initial stock minus those units
+     */
+    record Result(int skus, long unitsPlaced, List<String> oversold, List<String> mismatched) {
+
+        boolean consistent() {
+            return oversold.isEmpty() && mismatched.isEmpty();
+        }
+    }
+
+    private StockAudit() {
+    }
+
+    static Result run(JdbcTemplate orderDatabase, JdbcTemplate productDatabase, Map<String, Integer> initialStock) {
+        Map<String, Long> placed = new HashMap<>();
+        orderDatabase.query(PLACED_UNITS_SQL, rs -> {
+            placed.put(rs.getString(1), rs.getLong(2));
+        });
+        Map<String, Long> stock = new HashMap<>();
+        productDatabase.query(STOCK_SQL, rs -> {
+            stock.put(rs.getString(1), rs.getLong(2));
+        });
+
+        long unitsPlaced = 0;
+        List<String> oversold = new ArrayList<>();
+        List<String> mismatched = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : initialStock.entrySet()) {
+            String skuCode = entry.getKey();
+            long placedUnits = placed.getOrDefault(skuCode, 0L);
+            long expected = entry.getValue() - placedUnits;
+            long actual = stock.getOrDefault(skuCode, 0L);
+            unitsPlaced += placedUnits;
+            if (placedUnits > entry.getValue()) {
+                oversold.add(skuCode + " (" + placedUnits + " placed, " + entry.getValue() + " in stock)");
+            }
+            if (actual != expected) {
+                mismatched.add(skuCode + " (expected " + expected + ", found " + actual + ")");
+            }
+        }
+        return new Result(initialStock.size(), unitsPlaced, oversold, mismatched);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.ProductAvailability;
+import com.example.order_service.service.AvailabilityIndex;
+import com.example.order_service.service.FulfilmentPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Matching an availability response back to the basket, as OrderPlacementService does per order
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilityMatchBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int basketSize;
+
+    @Param({"REJECT", "DROP_LINE", "PARTIAL"})
+    public FulfilmentPolicy policy;
+
+    private List<OrderItemDto> items;
+    private List<ProductAvailability> availabilityList;
+
+    @Setup
+    public void setUp() {
+        items = BenchmarkOrders.order(basketSize).getOrderItems();
+        availabilityList = new ArrayList<>(basketSize);
+        for (int i = 0; i < basketSize; i++) {
+            // Last SKU is short by one unit
+            OrderItemDto item = items.get(i);
+            int availableQuantity = i == basketSize - 1 ? item.getQuantity() - 1 : item.getQuantity();
+            availabilityList.add(new ProductAvailability(item.getSkuCode(), availableQuantity == item.getQuantity(), availableQuantity));
+        }
+    }
+
+    @Benchmark
+    public List<OrderItemDto> fill() {
+        return AvailabilityIndex.of(availabilityList).fill(items, policy);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderItemDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Test data shared by the order-service benchmarks
+final class BenchmarkOrders {
+
+    private BenchmarkOrders() {
+    }
+
+    static OrderDto order(int items) {
+        List<OrderItemDto> orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            orderItems.add(OrderItemDto.builder()
+                    .id((long) i)
+                    .skuCode(skuCode(i))
+                    .productName("Product " + i)
+                    .quantity(1 + i % 5)
+                    .price(new BigDecimal("19.99"))
+                    .build());
+        }
+        OrderDto order = new OrderDto();
+        order.setId(7_300_000_000_000_000_000L + items);
+        order.setTotalPrice(new BigDecimal("19.99").multiply(BigDecimal.valueOf(items)));
+        order.setOrderDate(LocalDateTime.of(2026, 1, 1, 12, 0));
+        order.setReservationId("3f2b8c1e-6a4d-4e8f-9c1a-2b7d5e0f4a11");
+        order.setOrderItems(orderItems);
+        return order;
+    }
+
+    // An order as a client sends it to /create: no id and no reservation yet
+    static OrderDto newOrder(int items) {
+        OrderDto order = order(items);
+        order.setId(null);
+        order.setReservationId(null);
+        order.getOrderItems().forEach(item -> item.setId(null));
+        return order;
+    }
+
+    static String skuCode(int i) {
+        return "SKU-" + (100_000 + i);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.id.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Snowflake id generation uncontended and with several request threads sharing the generator
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(0);
+
+    @Benchmark
+    @Threads(1)
+    public long snowflakeSingleThread() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long snowflakeContended() {
+        return idGenerator.nextId();
+    }
+
+    // Baseline for the reservation ids, which are still random UUIDs
+    @Benchmark
+    @Threads(1)
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.OrderServiceApplication;
+import com.example.order_service.dto.OrderBatchResult;
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.service.OrderPlacementService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST /create/batch without the HTTP layer: OrderPlacementService.placeOrders for batches of 1, 10, 100 and
+ * 1000 orders (3 items each), in orders per second. Batch size 1 is what one POST /create per order costs:
+ * an availability call and a transaction per order.
+ *
+ * Availability goes to a local stub (StubProductService) over HTTP, orders are saved to the "test"
+ * profile's in-memory H2 with their events in the outbox (the relay is off there).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderBatchPlacementBenchmark {
+
+    private static final int ORDERS_PER_INVOCATION = 1000;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    private StubProductService productService;
+    private ConfigurableApplicationContext context;
+    private OrderPlacementService placementService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() throws IOException {
+        productService = new StubProductService();
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .properties("product.service.url=" + productService.url(),
+                        "order.availability.mode=check",
+                        "spring.main.banner-mode=off")
+                .run();
+        placementService = context.getBean(OrderPlacementService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    // Every iteration starts from empty tables
+    @Setup(Level.Iteration)
+    public void clearOrders() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM order_outbox");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        productService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_INVOCATION)
+    public void placeOrders(Blackhole blackhole) {
+        for (int placed = 0; placed < ORDERS_PER_INVOCATION; placed += batchSize) {
+            List<OrderDto> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                batch.add(BenchmarkOrders.newOrder(ITEMS_PER_ORDER));
+            }
+            List<OrderBatchResult> results = placementService.placeOrders(batch, placementService.defaultPolicy());
+            blackhole.consume(results);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.config.KafkaProducerConfig;
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.kafka.codec.OrderEventCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order event encode/decode: JSON with the kafkaObjectMapper configuration against OrderEventCodec.
+ * Encoded sizes are reported next to the timings as the jsonBytes / binaryBytes secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderEventCodecBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int items;
+
+    private final ObjectMapper kafkaObjectMapper = new KafkaProducerConfig().kafkaObjectMapper();
+    private OrderDto order;
+    private byte[] json;
+    private byte[] binary;
+
+    // Size of one encoded event, constant per parameter set
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long jsonBytes;
+        public long binaryBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            jsonBytes = 0;
+            binaryBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        order = BenchmarkOrders.order(items);
+        json = kafkaObjectMapper.writeValueAsBytes(order);
+        binary = OrderEventCodec.encode(order);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode(EncodedSize size) throws Exception {
+        size.jsonBytes = json.length;
+        return kafkaObjectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public OrderDto jsonDecode() throws Exception {
+        return kafkaObjectMapper.readValue(json, OrderDto.class);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode(EncodedSize size) {
+        size.binaryBytes = binary.length;
+        return OrderEventCodec.encode(order);
+    }
+
+    @Benchmark
+    public OrderDto binaryDecode() {
+        return OrderEventCodec.decode(binary);
+    }
+}
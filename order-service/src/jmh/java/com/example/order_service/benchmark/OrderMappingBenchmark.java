@@ -0,0 +1,62 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.entity.Order;
+import com.example.order_service.entity.OrderItem;
+import com.example.order_service.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// OrderService.convertToEntity / convertToDto for a whole order, as createOrder and getOrder use them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int items;
+
+    // The mapping methods don't touch the injected collaborators
+    private final OrderService orderService = new OrderService();
+    private OrderDto orderDto;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        orderDto = BenchmarkOrders.order(items);
+        order = toEntity();
+    }
+
+    @Benchmark
+    public Order convertToEntity() {
+        return toEntity();
+    }
+
+    @Benchmark
+    public OrderDto convertToDto() {
+        return orderService.convertToDto(order);
+    }
+
+    private Order toEntity() {
+        Order entity = orderService.convertToEntity(orderDto);
+        List<OrderItem> orderItems = orderDto.getOrderItems().stream()
+                .map(itemDto -> {
+                    OrderItem orderItem = orderService.convertToEntity(itemDto);
+                    orderItem.setOrder(entity);
+                    return orderItem;
+                })
+                .collect(Collectors.toList());
+        entity.setOrderItems(orderItems);
+        return entity;
+    }
+}
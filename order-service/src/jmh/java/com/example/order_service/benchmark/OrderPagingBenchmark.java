@@ -0,0 +1,112 @@
+package com.example.order_service.benchmark;
+
+import com.example.order_service.OrderServiceApplication;
+import com.example.order_service.dto.OrderPage;
+import com.example.order_service.dto.OrderSummary;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.service.OrderService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /orders page latency on a table of 1M orders, by how deep the page is:
+ * keyset pagination (OrderService.listOrders with the previous page's cursor) against the same JPQL
+ * with OFFSET. Keyset seeks in the orders(order_date, id) index and should stay flat with depth,
+ * OFFSET reads and drops every row before the page.
+ *
+ * Runs against the "test" profile's in-memory H2; the table is filled once per depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderPagingBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+    private static final int INSERT_BATCH = 10_000;
+    private static final int PAGE_SIZE = 50;
+    private static final String INSERT_SQL =
+            "INSERT INTO orders (id, total_price, order_date, order_status, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String OFFSET_JPQL =
+            "select new com.example.order_service.dto.OrderSummary(o.id, o.orderDate, o.totalPrice, o.orderStatus)"
+                    + " from Order o where o.orderDate is not null order by o.orderDate, o.id";
+
+    // Orders before the page
+    @Param({"0", "10000", "100000", "500000", "990000"})
+    public int depth;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private EntityManager entityManager;
+    // Cursor of the row just before the page, null for the first page
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off")
+                .run();
+        orderService = context.getBean(OrderService.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        String[] statuses = {OrderStatus.ORDER_PLACED.name(), OrderStatus.CONFIRMED.name(), OrderStatus.ORDER_CANCELLED.name()};
+        for (int from = 0; from < ORDERS; from += INSERT_BATCH) {
+            List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < from + INSERT_BATCH; i++) {
+                rows.add(new Object[]{i + 1L, BigDecimal.valueOf(19.99), Timestamp.valueOf(start.plusSeconds(i)),
+                        statuses[i % statuses.length], createdAt});
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+
+        if (depth > 0) {
+            cursor = jdbcTemplate.queryForObject(
+                    "SELECT order_date, id FROM orders ORDER BY order_date, id LIMIT 1 OFFSET ?",
+                    (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime() + "_" + rs.getLong(2), depth - 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public OrderPage keyset() {
+        return orderService.listOrders(null, null, cursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<OrderSummary> offset() {
+        return entityManager.createQuery(OFFSET_JPQL, OrderSummary.class)
+                .setFirstResult(depth)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+}
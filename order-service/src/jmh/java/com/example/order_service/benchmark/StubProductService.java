@@ -0,0 +1,60 @@
+package com.example.order_service.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers POST /api/products/availability with every requested SKU available in plenty,
+ * so order-service benchmarks measure their own side of the call over a real local HTTP connection.
+ */
+final class StubProductService implements AutoCloseable {
+
+    private static final int AVAILABLE_QUANTITY = 1_000_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+
+    StubProductService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/products/availability", this::availability);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    // Value for product.service.url
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/products";
+    }
+
+    private void availability(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode availabilityList = response.putArray("productAvailabilityList");
+        for (JsonNode item : request) {
+            availabilityList.addObject()
+                    .put("skuCode", item.get("skuCode").asText())
+                    .put("available", true)
+                    .put("availableQuantity", AVAILABLE_QUANTITY);
+        }
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
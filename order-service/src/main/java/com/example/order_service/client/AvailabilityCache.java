@@ -0,0 +1,75 @@
+package com.example.order_service.client;
+
+import com.example.order_service.dto.ProductAvailability;
+import com.example.order_service.dto.ProductAvailabilityRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Last known availability per SKU, used as fallback when Product Service can't be called.
+ *
+ * An entry remembers the quantity that was asked for and the answer. It can answer a later request
+ * only if it still implies the result: available for q means available for anything up to q,
+ * unavailable for q means unavailable for anything above q.
+ */
+@Component
+public class AvailabilityCache {
+
+    private record Entry(int quantity, boolean available, long recordedAtMillis) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${product.service.fallback.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Value("${product.service.fallback.max-entries:10000}")
+    private int maxEntries;
+
+    public void update(List<ProductAvailabilityRequest> requests, List<ProductAvailability> availabilityList) {
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> now - entry.recordedAtMillis() > ttlMs);
+        }
+
+        Map<String, Integer> requestedBySku = new HashMap<>();
+        requests.forEach(request -> requestedBySku.merge(request.getSkuCode(), request.getQuantity(), Math::max));
+        for (ProductAvailability availability : availabilityList) {
+            Integer quantity = requestedBySku.get(availability.getSkuCode());
+            if (quantity != null) {
+                entries.put(availability.getSkuCode(), new Entry(quantity, availability.isAvailable(), now));
+            }
+        }
+    }
+
+    /**
+     * @return Availability for every requested SKU, or empty if any of them has no fresh, conclusive entry.
+     */
+    public Optional<List<ProductAvailability>> lookup(List<ProductAvailabilityRequest> requests) {
+        long now = System.currentTimeMillis();
+        List<ProductAvailability> result = new ArrayList<>(requests.size());
+
+        for (ProductAvailabilityRequest request : requests) {
+            Entry entry = entries.get(request.getSkuCode());
+            if (entry == null || now - entry.recordedAtMillis() > ttlMs) {
+                return Optional.empty();
+            }
+            if (entry.available() && request.getQuantity() <= entry.quantity()) {
+                // At least the quantity that was found available then
+                result.add(new ProductAvailability(request.getSkuCode(), true, entry.quantity()));
+            } else if (!entry.available() && request.getQuantity() >= entry.quantity()) {
+                result.add(new ProductAvailability(request.getSkuCode(), false, null));
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(result);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.order_service.client;
+
+import com.example.order_service.dto.InventoryChangedEvent;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.ProductAvailability;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of Product Service's stock per SKU, kept up to date from the inventory_changed topic
+ * by InventoryChangeListener. Answers availability checks without a remote call.
+ *
+ * The view only answers once it has been rebuilt from the topic at startup, and while it is no more than
+ * order.inventory-view.max-staleness-ms behind the topic; otherwise callers go to Product Service.
+ * Like order.availability.mode=check nothing is held, the order_placed event reduces the stock later.
+ */
+@Component
+@ConditionalOnProperty(name = "order.availability.mode", havingValue = "view")
+public class InventoryView {
+
+    private record Entry(int quantity, long version) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Timer eventDelayTimer;
+
+    private volatile boolean loaded;
+    // Last time the listener had read everything on the topic
+    private volatile long caughtUpAtMillis;
+
+    @Value("${order.inventory-view.max-staleness-ms:2000}")
+    private long maxStalenessMs;
+
+    public InventoryView(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.eventDelayTimer = Timer.builder("inventory.view.event.delay")
+                .description("Stock change committed in product-service until applied to the view")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("inventory.view.staleness", this, InventoryView::stalenessMillis)
+                .description("Milliseconds since the view last had everything on the topic")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("inventory.view.skus", entries, Map::size).register(meterRegistry);
+    }
+
+    // Called by the listener thread only
+    public void apply(InventoryChangedEvent event) {
+        Entry update = new Entry(event.getQuantity(), event.getVersion());
+        Entry applied = entries.merge(event.getSkuCode(), update,
+                (current, next) -> next.version() > current.version() ? next : current);
+        // Resync events republish stock the view already has, they say nothing about delay
+        if (loaded && applied == update && event.getChangedAt() > 0) {
+            eventDelayTimer.record(Math.max(0, System.currentTimeMillis() - event.getChangedAt()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Tombstone: the SKU no longer exists
+    public void remove(String skuCode) {
+        entries.remove(skuCode);
+    }
+
+    // The listener has read everything on the topic (only called once the startup load is done)
+    public void caughtUp() {
+        caughtUpAtMillis = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    public double stalenessMillis() {
+        return loaded ? System.currentTimeMillis() - caughtUpAtMillis : Double.NaN;
+    }
+
+    /**
+     * @return Availability per item with the SKU's stock as availableQuantity (unknown SKUs have none),
+     *         or empty if the view is still loading or too stale to be trusted.
+     */
+    public Optional<List<ProductAvailability>> checkAvailability(List<OrderItemDto> items) {
+        if (!loaded || System.currentTimeMillis() - caughtUpAtMillis > maxStalenessMs) {
+            meterRegistry.counter("inventory.view.fallback", "reason", loaded ? "stale" : "loading").increment();
+            return Optional.empty();
+        }
+        List<ProductAvailability> availabilityList = new ArrayList<>(items.size());
+        for (OrderItemDto item : items) {
+            Entry entry = entries.get(item.getSkuCode());
+            int quantity = entry != null ? entry.quantity() : 0;
+            availabilityList.add(new ProductAvailability(item.getSkuCode(), quantity >= item.getQuantity(), quantity));
+        }
+        return Optional.of(availabilityList);
+    }
+}
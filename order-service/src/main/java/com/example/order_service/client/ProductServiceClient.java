@@ -4,6 +4,13 @@ import com.example.order_service.dto.OrderItemDto;
 import com.example.order_service.dto.ProductAvailability;
 import com.example.order_service.dto.ProductAvailabilityRequest;
 import com.example.order_service.dto.ProductAvailabilityResponse;
+import com.example.order_service.dto.ReservationRequest;
+import com.example.order_service.dto.ReservationResponse;
+import com.example.order_service.exception.ProductServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
@@ -15,6 +22,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -23,20 +33,39 @@ public class ProductServiceClient {
     // RestTemplate is used to make HTTP calls to other microservices
     private final RestTemplate restTemplate;
 
+    // Guards against a slow or failing Product Service (see ProductClientResilienceConfig)
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    // Last known availability, answers requests while Product Service can't be called
+    private final AvailabilityCache availabilityCache;
+
+    private final MeterRegistry meterRegistry;
+
     // Base URL of Product Service (loaded from application.yml / properties)
     @Value("${product.service.url}")
     private String productServiceUrl;
 
     // Constructor injection (recommended best practice)
-    public ProductServiceClient(RestTemplate restTemplate) {
+    public ProductServiceClient(RestTemplate restTemplate,
+                                CircuitBreaker productServiceCircuitBreaker,
+                                Bulkhead productServiceBulkhead,
+                                AvailabilityCache availabilityCache,
+                                MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.circuitBreaker = productServiceCircuitBreaker;
+        this.bulkhead = productServiceBulkhead;
+        this.availabilityCache = availabilityCache;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
      * Calls Product Service to check availability of products
      *
      * @param orderItems List of OrderItemDto from Order Service
-     * @return List of ProductAvailability (skuCode + available flag)
+     * @return List of ProductAvailability (skuCode + available flag + available quantity)
+     * @throws ProductServiceUnavailableException if the call failed (or the circuit is open)
+     *         and the recent availability of these items is not known
      */
     public List<ProductAvailability> checkProductAvailability(List<OrderItemDto> orderItems) {
 
@@ -80,43 +109,142 @@ public class ProductServiceClient {
         HttpEntity<List<ProductAvailabilityRequest>> entity =
                 new HttpEntity<>(request, headers);
 
-        try {
-            /*
-             * STEP 5: Make REST call to Product Service
-             *
-             * - HTTP Method: POST
-             * - Request Body: List<ProductAvailabilityRequest>
-             * - Response Type: ProductAvailabilityResponse
-             */
-            ResponseEntity<ProductAvailabilityResponse> response =
-                    restTemplate.exchange(
-                            url,
-                            HttpMethod.POST,
-                            entity,
-                            ProductAvailabilityResponse.class
-                    );
+        /*
+         * STEP 5: Make REST call to Product Service, through the bulkhead (caps concurrent calls)
+         * and the circuit breaker (fails fast while Product Service is unhealthy)
+         */
+        Supplier<List<ProductAvailability>> call = () -> exchange(url, entity);
+        Supplier<List<ProductAvailability>> guardedCall =
+                CircuitBreaker.decorateSupplier(circuitBreaker, Bulkhead.decorateSupplier(bulkhead, call));
 
-            /*
-             * STEP 6: Extract and return product availability list
-             *
-             * ProductAvailabilityResponse contains:
-             * List<ProductAvailability> productAvailabilityList
-             */
-            return response.getBody().getProductAvailabilityList();
+        try {
+            List<ProductAvailability> availabilityList = guardedCall.get();
+            availabilityCache.update(request, availabilityList);
+            return availabilityList;
 
         } catch (Exception e) {
             /*
              * STEP 7: Handle failures
-             * - Product Service down
+             * - Product Service down / circuit open
              * - Timeout
-             * - Network issue
+             * - Too many concurrent calls
+             *
+             * Answer from recent availability if we have it, otherwise fail fast
              */
-            log.error("Error calling Product Service", e);
+            if (e instanceof CallNotPermittedException) {
+                log.debug("Product Service circuit is open, using fallback");
+            } else {
+                log.error("Error calling Product Service: {}", e.getMessage());
+            }
 
-            // Return empty list so Order Service can handle gracefully
-            return List.of();
+            return fallback(request, e).orElseThrow(() ->
+                    new ProductServiceUnavailableException("Product Service unavailable", e));
+        }
+    }
+
+    /**
+     * Asks Product Service to hold stock for the order items for a limited time.
+     * There is no cached fallback here: accepting an order from cached availability without a hold could
+     * oversell, and outside saga mode nothing tells the order when its order_placed event is rejected later.
+     * While Product Service can't be called, orders fail fast.
+     *
+     * @param orderItems List of OrderItemDto from Order Service
+     * @param partial Hold the free stock of SKUs that can't cover the full quantity
+     * @return Reservation id (null if nothing could be held) and per-item availability
+     * @throws ProductServiceUnavailableException if the call failed or the circuit is open
+     */
+    public ReservationResponse reserveProducts(List<OrderItemDto> orderItems, boolean partial) {
+        List<ProductAvailabilityRequest> items = orderItems.stream()
+                .map(item -> new ProductAvailabilityRequest(item.getSkuCode(), item.getQuantity()))
+                .toList();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<ReservationRequest> entity = new HttpEntity<>(new ReservationRequest(items, partial), headers);
+
+        Supplier<ReservationResponse> call = () -> restTemplate.exchange(
+                productServiceUrl + "/reservations",
+                HttpMethod.POST,
+                entity,
+                ReservationResponse.class
+        ).getBody();
+
+        try {
+            ReservationResponse reservation =
+                    CircuitBreaker.decorateSupplier(circuitBreaker, Bulkhead.decorateSupplier(bulkhead, call)).get();
+            availabilityCache.update(items, reservation.getProductAvailabilityList());
+            return reservation;
+        } catch (Exception e) {
+            if (e instanceof CallNotPermittedException) {
+                log.debug("Product Service circuit is open, failing the reservation");
+            } else {
+                log.error("Error reserving stock in Product Service: {}", e.getMessage());
+            }
+            throw new ProductServiceUnavailableException("Product Service unavailable", e);
         }
     }
+
+    // Recent availability of the items, if every one of them is known
+    private Optional<List<ProductAvailability>> fallback(List<ProductAvailabilityRequest> items, Exception cause) {
+        Optional<List<ProductAvailability>> cached = availabilityCache.lookup(items);
+        meterRegistry.counter("product.service.fallback",
+                "result", cached.isPresent() ? "hit" : "miss",
+                "cause", cause.getClass().getSimpleName()).increment();
+        return cached;
+    }
+
+    /**
+     * Releases a reservation that won't be used, e.g. because saving the order failed.
+     * Best effort: if this fails the hold simply expires.
+     */
+    public void releaseReservation(String reservationId) {
+        try {
+            restTemplate.delete(productServiceUrl + "/reservations/{id}", reservationId);
+        } catch (Exception e) {
+            log.warn("Could not release reservation {}, it will expire: {}", reservationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Releases part of a reservation, e.g. the stock a batch of orders held but did not use.
+     * Best effort like releaseReservation(String).
+     *
+     * @param quantities Quantity to release per skuCode.
+     */
+    public void releaseReservation(String reservationId, Map<String, Integer> quantities) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            restTemplate.postForLocation(productServiceUrl + "/reservations/{id}/release",
+                    new HttpEntity<>(quantities, headers), reservationId);
+        } catch (Exception e) {
+            log.warn("Could not release {} SKUs of reservation {}, they will expire: {}",
+                    quantities.size(), reservationId, e.getMessage());
+        }
+    }
+
+    private List<ProductAvailability> exchange(String url, HttpEntity<List<ProductAvailabilityRequest>> entity) {
+        /*
+         * - HTTP Method: POST
+         * - Request Body: List<ProductAvailabilityRequest>
+         * - Response Type: ProductAvailabilityResponse
+         */
+        ResponseEntity<ProductAvailabilityResponse> response =
+                restTemplate.exchange(
+                        url,
+                        HttpMethod.POST,
+                        entity,
+                        ProductAvailabilityResponse.class
+                );
+
+        /*
+         * STEP 6: Extract and return product availability list
+         *
+         * ProductAvailabilityResponse contains:
+         * List<ProductAvailability> productAvailabilityList
+         */
+        return response.getBody().getProductAvailabilityList();
+    }
 }
 
 
@@ -137,11 +265,13 @@ public class ProductServiceClient {
         "productAvailabilityList": [
         {
         "skuCode": "IPHONE_15",
-        "available": true
+        "available": true,
+        "availableQuantity": 40
         },
         {
         "skuCode": "AIRPODS",
-        "available": false
+        "available": false,
+        "availableQuantity": 0
         }
         ]
         }
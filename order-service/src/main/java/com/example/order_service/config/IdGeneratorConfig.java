@@ -0,0 +1,33 @@
+package com.example.order_service.config;
+
+import com.example.order_service.id.ApplicationIdGenerator;
+import com.example.order_service.id.IdGenerator;
+import com.example.order_service.id.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Ids for Order, OrderItem and OutboxEvent (@ApplicationId).
+ * Defaults to Snowflake ids; declare another IdGenerator bean to plug in a different strategy.
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public IdGenerator idGenerator(@Value("${order.id.node-id:0}") long nodeId) {
+        log.info("Snowflake order ids with node id {}", nodeId);
+        return new SnowflakeIdGenerator(nodeId);
+    }
+
+    // Hands the IdGenerator to Hibernate's generator once all beans exist, before any request is served
+    @Bean
+    public SmartInitializingSingleton applicationIdGeneratorInstaller(IdGenerator idGenerator) {
+        return () -> ApplicationIdGenerator.use(idGenerator);
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.order_service.config;
 
+import com.example.order_service.kafka.codec.OrderEventSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,18 +13,69 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
+@Slf4j
 @Configuration
 public class KafkaProducerConfig {
 
+    /**
+     * Producer presets. All of them keep idempotence and acks=all, so a retried send
+     * is never duplicated or reordered within a partition. They differ in how long records
+     * wait to fill a batch and whether batches are compressed.
+     */
+    enum ProducerProfile {
+        // Send as soon as possible, small uncompressed batches
+        LOW_LATENCY(0, 16_384, "none"),
+        // Kafka client defaults plus cheap compression
+        BALANCED(5, 32_768, "lz4"),
+        // Wait a little for big batches, compress them harder
+        HIGH_THROUGHPUT(20, 262_144, "zstd");
+
+        final int lingerMs;
+        final int batchSize;
+        final String compressionType;
+
+        ProducerProfile(int lingerMs, int batchSize, String compressionType) {
+            this.lingerMs = lingerMs;
+            this.batchSize = batchSize;
+            this.compressionType = compressionType;
+        }
+    }
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    // low-latency, balanced or high-throughput
+    @Value("${order.kafka.producer.profile:balanced}")
+    private String profile;
+
+    // Optional overrides of single profile settings
+    @Value("${order.kafka.producer.acks:all}")
+    private String acks;
+
+    @Value("${order.kafka.producer.enable-idempotence:true}")
+    private boolean enableIdempotence;
+
+    @Value("${order.kafka.producer.linger-ms:#{null}}")
+    private Integer lingerMs;
+
+    @Value("${order.kafka.producer.batch-size:#{null}}")
+    private Integer batchSize;
+
+    @Value("${order.kafka.producer.compression-type:#{null}}")
+    private String compressionType;
+
+    // binary: OrderEventCodec, json: Jackson (the consumer picks the decoder from the event-format header)
+    @Value("${order.kafka.event-format:binary}")
+    private String eventFormat;
+
     @Bean
     public ObjectMapper kafkaObjectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -31,17 +85,40 @@ public class KafkaProducerConfig {
     }
 
     @Bean
-    public ProducerFactory<String, Object> producerFactory(ObjectMapper kafkaObjectMapper) {
+    public ProducerFactory<String, Object> producerFactory(ObjectMapper kafkaObjectMapper, MeterRegistry meterRegistry) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.putAll(producerProfileProps());
 
-        return new DefaultKafkaProducerFactory<>(
+        DefaultKafkaProducerFactory<String, Object> producerFactory = new DefaultKafkaProducerFactory<>(
             configProps,
             new StringSerializer(),
-            new JsonSerializer<>(kafkaObjectMapper)
+            new OrderEventSerializer("binary".equalsIgnoreCase(eventFormat), new JsonSerializer<>(kafkaObjectMapper))
         );
+        // Producer client metrics (kafka.producer.record.send.rate, batch.size.avg, compression.rate.avg, ...)
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    /**
+     * Idempotence, acks, linger, batch size and compression from the selected profile,
+     * with any order.kafka.producer.* override applied on top.
+     * Idempotence needs acks=all, the producer refuses to start otherwise.
+     */
+    Map<String, Object> producerProfileProps() {
+        ProducerProfile preset = ProducerProfile.valueOf(profile.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, enableIdempotence);
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs != null ? lingerMs : preset.lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize != null ? batchSize : preset.batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType != null ? compressionType : preset.compressionType);
+
+        log.info("Kafka producer profile {}: {}", preset, props);
+        return props;
     }
 
     @Bean
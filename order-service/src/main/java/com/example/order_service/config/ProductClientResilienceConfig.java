@@ -0,0 +1,97 @@
+package com.example.order_service.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker and bulkhead guarding calls from ProductServiceClient.
+ *
+ * The breaker opens on a high failure rate or slow-call rate and probes Product Service
+ * again with a few half-open calls after a wait. The bulkhead caps concurrent outbound calls.
+ */
+@Slf4j
+@Configuration
+public class ProductClientResilienceConfig {
+
+    private static final String PRODUCT_SERVICE = "productService";
+
+    @Value("${product.service.circuit.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${product.service.circuit.slow-call-rate-threshold:50}")
+    private float slowCallRateThreshold;
+
+    @Value("${product.service.circuit.slow-call-duration-ms:1000}")
+    private long slowCallDurationMs;
+
+    @Value("${product.service.circuit.sliding-window-size:50}")
+    private int slidingWindowSize;
+
+    @Value("${product.service.circuit.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${product.service.circuit.open-state-wait-ms:5000}")
+    private long openStateWaitMs;
+
+    @Value("${product.service.circuit.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    @Value("${product.service.bulkhead.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Bean
+    public CircuitBreaker productServiceCircuitBreaker(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openStateWaitMs))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                // Rejections by our own bulkhead and 4xx answers say nothing about Product Service health
+                .ignoreExceptions(BulkheadFullException.class, HttpClientErrorException.class)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        CircuitBreaker circuitBreaker = registry.circuitBreaker(PRODUCT_SERVICE);
+
+        // resilience4j.circuitbreaker.* gauges (state, failure rate, calls) and a transition counter
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Product Service circuit breaker: {}", event.getStateTransition());
+            meterRegistry.counter("product.service.circuit.transitions",
+                    "from", event.getStateTransition().getFromState().name(),
+                    "to", event.getStateTransition().getToState().name()).increment();
+        });
+        return circuitBreaker;
+    }
+
+    @Bean
+    public Bulkhead productServiceBulkhead(MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                // Reject immediately instead of queueing request threads
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+
+        BulkheadRegistry registry = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(PRODUCT_SERVICE);
+    }
+}
@@ -1,15 +1,116 @@
 package com.example.order_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.regex.Pattern;
+
+/**
+ * HTTP client used for calls to Product Service.
+ *
+ * Connections are pooled and kept alive, idle ones are evicted, and every phase of a call
+ * (pool lease, connect, read, whole response) is bounded, so a slow Product Service
+ * can't hold order-service request threads indefinitely.
+ */
 @Configuration
 public class RestTemplateConfig {
 
+    // Reservation ids in the path would give a meter per reservation
+    private static final Pattern RESERVATION_ID = Pattern.compile("/reservations/[^/]+");
+
+    @Value("${product.service.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${product.service.http.max-connections-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    // How long a request may wait for a free pooled connection
+    @Value("${product.service.http.connection-request-timeout-ms:500}")
+    private long connectionRequestTimeoutMs;
+
+    @Value("${product.service.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    // Max inactivity between two data packets
+    @Value("${product.service.http.read-timeout-ms:2000}")
+    private long readTimeoutMs;
+
+    // Max time until the response head has arrived
+    @Value("${product.service.http.response-timeout-ms:3000}")
+    private long responseTimeoutMs;
+
+    @Value("${product.service.http.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager productServiceConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+
+        // httpcomponents.httpclient.pool.* gauges: leased / pending / available connections
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "product-service")
+                .bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient productServiceHttpClient(PoolingHttpClientConnectionManager productServiceConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(productServiceConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .evictExpiredConnections()
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient productServiceHttpClient, MeterRegistry meterRegistry) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(productServiceHttpClient));
+
+        // Per-call latency, tagged with the path template and status ("IO_ERROR" when no response came back)
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String status = "IO_ERROR";
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                status = String.valueOf(response.getStatusCode().value());
+                return response;
+            } finally {
+                sample.stop(Timer.builder("product.service.client.requests")
+                        .description("Latency of calls to Product Service")
+                        .tag("uri", uriTemplate(request.getURI().getPath()))
+                        .tag("status", status)
+                        .register(meterRegistry));
+            }
+        });
+        return restTemplate;
     }
-}
 
+    private static String uriTemplate(String path) {
+        return RESERVATION_ID.matcher(path).replaceFirst("/reservations/{id}");
+    }
+}
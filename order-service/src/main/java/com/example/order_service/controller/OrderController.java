@@ -1,80 +1,182 @@
 package com.example.order_service.controller;
 
-import com.example.order_service.client.ProductServiceClient;
+import com.example.order_service.dto.OrderBatchResult;
+import com.example.order_service.dto.OrderCancelBatchRequest;
+import com.example.order_service.dto.OrderCancelBatchResponse;
 import com.example.order_service.dto.OrderDto;
-import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderPage;
 import com.example.order_service.dto.OrderResponse;
-import com.example.order_service.dto.ProductAvailability;
-import com.example.order_service.kafka.OrderProducer;
+import com.example.order_service.dto.OrderStatusResponse;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.exception.OrderPipelineSaturatedException;
+import com.example.order_service.exception.ProductServiceUnavailableException;
+import com.example.order_service.service.FulfilmentPolicy;
+import com.example.order_service.service.OrderCancellationService;
+import com.example.order_service.service.OrderPlacementService;
 import com.example.order_service.service.OrderService;
+import com.example.order_service.service.OrderSubmissionPipeline;
 import jakarta.validation.Valid;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
 @Slf4j
 @RestController
 public class OrderController {
 
+    private static final Pattern ORDER_ID = Pattern.compile("\\d{1,18}");
+
     private final OrderService orderService;
-    private final ProductServiceClient productServiceClient;
-    private final OrderProducer orderProducer;
+    private final OrderPlacementService orderPlacementService;
+    private final OrderSubmissionPipeline orderSubmissionPipeline;
+    private final OrderCancellationService orderCancellationService;
+
+    @Value("${order.batch.max-orders:1000}")
+    private int maxBatchOrders;
 
-    public OrderController(OrderService orderService, ProductServiceClient productServiceClient, OrderProducer orderProducer) {
+    @Value("${order.read.max-page-size:200}")
+    private int maxPageSize;
+
+    public OrderController(OrderService orderService,
+                           OrderPlacementService orderPlacementService,
+                           OrderSubmissionPipeline orderSubmissionPipeline,
+                           OrderCancellationService orderCancellationService) {
         this.orderService = orderService;
-        this.productServiceClient = productServiceClient;
-        this.orderProducer = orderProducer;
+        this.orderPlacementService = orderPlacementService;
+        this.orderSubmissionPipeline = orderSubmissionPipeline;
+        this.orderCancellationService = orderCancellationService;
     };
 
+    // ?fulfilment=reject|drop_line|partial decides what happens to lines that can't be fully filled
     @PostMapping("/create")
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderDto orderDto) {
+    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderDto orderDto,
+                                                     @RequestParam(required = false) String fulfilment) {
+        FulfilmentPolicy policy = fulfilmentPolicy(fulfilment);
         try {
-            // STEP 1: Check product availability
-            List<ProductAvailability> availabilityList =
-                    productServiceClient.checkProductAvailability(orderDto.getOrderItems());
-
-                    /*
-            Receives response from Product Service:
-   │ [
-   │   { "skuCode": "LAPTOP-001", "available": true }
-   │ ]
-             */
-            // STEP 2: Filter available items
-            List<OrderItemDto> availableItems = orderDto.getOrderItems().stream()
-                    .filter(item -> orderService.isProductAvailable(item.getSkuCode(), availabilityList))
-                    .collect(Collectors.toList());
-
-            if (availableItems.isEmpty()) {
+            // STEP 1: Reserve stock / check product availability with Product Service (nothing to do in saga mode)
+            // STEP 2: Keep the items that can be filled under the fulfilment policy
+            OrderPlacementService.Availability availability = orderPlacementService.checkAvailability(orderDto, policy);
+
+            if (availability.availableItems().isEmpty()) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(new OrderResponse("No items available for the order."));
+                        .body(new OrderResponse(availability.rejectionMessage()));
             }
 
-            orderDto.setOrderItems(availableItems);
-
             // STEP 3: Save order to database
-            OrderResponse orderResponse = orderService.createOrder(orderDto);
-
-            // STEP 4: 🔥 KAFKA PRODUCER CALLED HERE!
-            if (orderResponse != null) {
-                log.info("Order placed successfully, sending 'Order Placed' event to Kafka...");
-                orderDto.setId(orderResponse.getOrderId());
-
-                // ✅ THIS IS WHERE KAFKA PRODUCER IS CALLED
-                orderProducer.sendOrderEvent(orderDto, "placed");
-            }
+            // The 'placed' event is written to the outbox in the same transaction
+            // and relayed to Kafka by OutboxRelay, so this request never waits on the broker
+            OrderResponse orderResponse = orderPlacementService.placeOrder(orderDto, availability);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(orderResponse);
+        } catch (ProductServiceUnavailableException e) {
+            // Availability unknown: fail fast instead of rejecting the items as unavailable
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable, please retry");
         } catch (Exception e) {
             log.error("Error while creating order", e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to create order");
         }
     }
 
+    // Bulk ingestion for partners: one availability call and a few transactions for the whole list
+    @PostMapping("/create/batch")
+    public ResponseEntity<List<OrderBatchResult>> createOrders(@RequestBody List<OrderDto> orderDtos,
+                                                               @RequestParam(required = false) String fulfilment) {
+        FulfilmentPolicy policy = fulfilmentPolicy(fulfilment);
+        if (orderDtos == null || orderDtos.isEmpty() || orderDtos.size() > maxBatchOrders) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch needs 1 to " + maxBatchOrders + " orders");
+        }
+        if (orderDtos.stream().anyMatch(orderDto -> orderDto.getOrderItems() == null || orderDto.getOrderItems().isEmpty())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every order needs at least one item");
+        }
+        try {
+            return ResponseEntity.ok(orderPlacementService.placeOrders(orderDtos, policy));
+        } catch (ProductServiceUnavailableException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Product service unavailable, please retry");
+        } catch (Exception e) {
+            log.error("Error while creating order batch", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to create orders");
+        }
+    }
+
+    // Accepts the order and returns right away, poll GET /orders/{handle}/status for the outcome
+    @PostMapping("/create/async")
+    public ResponseEntity<OrderStatusResponse> createOrderAsync(@Valid @RequestBody OrderDto orderDto) {
+        try {
+            OrderStatusResponse status = orderSubmissionPipeline.submit(orderDto);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (OrderPipelineSaturatedException e) {
+            // Shed load instead of queueing without bound
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(OrderStatusResponse.builder()
+                            .status(OrderSubmissionPipeline.REJECTED)
+                            .message(e.getMessage())
+                            .build());
+        }
+    }
+
+    @GetMapping("/orders/{id}")
+    public ResponseEntity<OrderDto> getOrder(@PathVariable Long id) {
+        return orderService.getOrder(id)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + id));
+    }
+
+    // e.g. /orders?status=ORDER_PLACED&from=2026-01-01T00:00:00, then &after=<nextCursor> for the following pages
+    @GetMapping("/orders")
+    public ResponseEntity<OrderPage> listOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxPageSize);
+        }
+        try {
+            return ResponseEntity.ok(orderService.listOrders(status, from, after, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // {id} is either a handle from /create/async or an order id
+    @GetMapping("/orders/{id}/status")
+    public ResponseEntity<OrderStatusResponse> getOrderStatus(@PathVariable String id) {
+        return orderSubmissionPipeline.getStatus(id)
+                .map(this::withConfirmation)
+                .or(() -> ORDER_ID.matcher(id).matches()
+                        ? orderService.getOrderStatus(Long.valueOf(id))
+                        : Optional.empty())
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No order or submission " + id));
+    }
+
+    // Mass cancellation by ids or by filter, e.g. {"status": "CONFIRMED", "from": "2026-03-01T10:00:00", "to": "2026-03-01T12:00:00"}.
+    // Safe to repeat: orders already cancelled are skipped and their stock isn't restored again.
+    @PutMapping("/cancel/batch")
+    public ResponseEntity<OrderCancelBatchResponse> cancelOrders(@RequestBody OrderCancelBatchRequest request) {
+        try {
+            return ResponseEntity.ok(orderCancellationService.cancelOrders(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            log.error("Error while cancelling orders", e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to cancel orders");
+        }
+    }
+
     @PutMapping("/cancel/{id}")
     public ResponseEntity<OrderResponse> cancelOrder(@PathVariable Long id) {
         try {
@@ -86,4 +188,28 @@ public class OrderController {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to cancel order");
         }
     }
+
+    // A submission saved as PENDING (saga mode) reports the order's current status
+    private OrderStatusResponse withConfirmation(OrderStatusResponse submission) {
+        if (submission.getOrderId() == null || !OrderStatus.PENDING.name().equals(submission.getStatus())) {
+            return submission;
+        }
+        return orderService.getOrderStatus(submission.getOrderId())
+                .map(order -> {
+                    order.setHandle(submission.getHandle());
+                    return order;
+                })
+                .orElse(submission);
+    }
+
+    private FulfilmentPolicy fulfilmentPolicy(String fulfilment) {
+        if (fulfilment == null) {
+            return orderPlacementService.defaultPolicy();
+        }
+        try {
+            return FulfilmentPolicy.from(fulfilment);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
 }
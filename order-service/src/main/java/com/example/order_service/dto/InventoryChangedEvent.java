@@ -0,0 +1,20 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Stock of one SKU after a change, from product-service's compacted inventory_changed topic (keyed by skuCode)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryChangedEvent {
+    private String skuCode;
+    private int quantity;
+    // Stock version in product-service, higher wins
+    private long version;
+    // Epoch millis at which product-service stored the stock, 0 if unknown
+    private long changedAt;
+}
@@ -0,0 +1,22 @@
+package com.example.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one order in a POST /create/batch request
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderBatchResult {
+    // Position of the order in the request
+    private int index;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Long orderId;
+    // ORDER_PLACED (PENDING in saga mode), REJECTED (no items available) or FAILED
+    private String status;
+    private String message;
+}
@@ -0,0 +1,25 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// PUT /cancel/batch: either orderIds, or a filter (status and/or order date range)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderCancelBatchRequest {
+    private List<Long> orderIds;
+
+    // ORDER_PLACED, CONFIRMED or PENDING; null for all of them
+    private String status;
+    // Placed at or after
+    private LocalDateTime from;
+    // Placed before
+    private LocalDateTime to;
+}
@@ -0,0 +1,21 @@
+package com.example.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderCancelBatchResponse {
+    // Orders cancelled by this request; already cancelled, rejected or unknown orders are not listed
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private List<Long> cancelledOrderIds;
+    // The filter matched more than order.cancel.batch.max-orders, send the same request again for the rest
+    private boolean hasMore;
+}
@@ -1,5 +1,6 @@
 package com.example.order_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,8 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class OrderDto {
+    // Snowflake ids go past 2^53, sent as strings so JavaScript clients don't round them
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Long id;
     private BigDecimal totalPrice;
 
@@ -19,4 +22,7 @@ public class OrderDto {
 
     private List<OrderItemDto> orderItems;
 
+    // Stock reservation held in Product Service for this order, released by the order_placed event
+    private String reservationId;
+
 }
\ No newline at end of file
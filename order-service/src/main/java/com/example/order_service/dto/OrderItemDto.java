@@ -1,5 +1,6 @@
 package com.example.order_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 @Builder
 public class OrderItemDto {
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Long id;
     private String skuCode;
     private String productName;
@@ -1,6 +1,7 @@
 package com.example.order_service.dto;
 
 import com.example.order_service.entity.Order;
+import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class OrderResponse {
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Long orderId;
 
     public OrderResponse(String status) {
@@ -0,0 +1,20 @@
+package com.example.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderStatusResponse {
+    // Handle returned by POST /create/async, null when looked up by order id
+    private String handle;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Long orderId;
+    private String status;
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.example.order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Row of an order list, selected straight into this DTO (no Order/OrderItem entities loaded)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSummary {
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private Long id;
+    private LocalDateTime orderDate;
+    private BigDecimal totalPrice;
+    private String orderStatus;
+}
@@ -12,4 +12,6 @@ import lombok.NoArgsConstructor;
 public class ProductAvailability {
     private String skuCode;
     private boolean available;
+    // Units usable for this SKU (stock, or units held by a reservation); null from Product Service versions without it
+    private Integer availableQuantity;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationRequest {
+    private List<ProductAvailabilityRequest> items;
+    // Hold the free stock of a SKU that can't cover the full quantity
+    private boolean partial;
+}
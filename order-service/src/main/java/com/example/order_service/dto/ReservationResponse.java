@@ -0,0 +1,21 @@
+package com.example.order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationResponse {
+    // null when nothing could be held
+    private String reservationId;
+    private Instant expiresAt;
+    // available = a hold was placed for this item
+    private List<ProductAvailability> productAvailabilityList;
+}
@@ -1,5 +1,6 @@
 package com.example.order_service.entity;
 
+import com.example.order_service.id.ApplicationId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,19 +8,26 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
 //1 order can have many order items (1 to many relationship)
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination of GET /orders, with and without a status filter
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_status_order_date_id", columnList = "order_status, order_date, id"),
+        // Sweep of PENDING orders past the confirmation timeout
+        @Index(name = "idx_orders_status_created_at", columnList = "order_status, created_at")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApplicationId
     private Long id;
 
     private BigDecimal totalPrice;
@@ -29,4 +37,11 @@ public class Order {
     private List<OrderItem> orderItems;
 
     private String orderStatus;
+
+    // When the order was saved (orderDate can come from the client)
+    private Instant createdAt;
+
+    // Saga: set once Product Service's inventory_reserved reply was acted on (order confirmed, or the stock
+    // handed back), so a redelivered reply changes nothing. Null for orders that never got one.
+    private Boolean reservationHandled;
 }
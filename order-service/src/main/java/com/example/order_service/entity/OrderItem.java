@@ -1,5 +1,6 @@
 package com.example.order_service.entity;
 
+import com.example.order_service.id.ApplicationId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,14 +10,14 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order_id", columnList = "order_id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApplicationId
     private Long id;
 
     private String productId;
@@ -2,7 +2,18 @@ package com.example.order_service.entity;
 
 public enum OrderStatus {
     ORDER_PLACED,
-    ORDER_CANCELLED;
+    ORDER_CANCELLED,
+    // Saga (order.availability.mode=saga): waiting for Product Service to take the stock
+    PENDING,
+    CONFIRMED,
+    // Product Service couldn't take the stock, or didn't answer in time
+    REJECTED;
+
+    // Statuses an order can still be cancelled from (REJECTED holds no stock, ORDER_CANCELLED is done;
+    // rows written as "Order Cancelled" by older versions count as cancelled too)
+    public static boolean isCancellable(String status) {
+        return ORDER_PLACED.name().equals(status) || CONFIRMED.name().equals(status) || PENDING.name().equals(status);
+    }
 
     @Override
     public String toString() {
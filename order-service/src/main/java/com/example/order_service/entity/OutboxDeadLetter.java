@@ -0,0 +1,42 @@
+package com.example.order_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Order event the outbox relay gave up on, kept for inspection and manual replay.
+// Keeps the OutboxEvent's id. Later events of the same order are moved here too instead of being sent,
+// so product-service never sees e.g. an order's cancelled event without its placed event.
+@Entity
+@Table(name = "order_outbox_dead_letter", indexes = {
+        @Index(name = "idx_order_outbox_dead_letter_order_id", columnList = "order_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxDeadLetter {
+    @Id
+    private Long id;
+
+    private Long orderId;
+
+    private String eventType;
+
+    @Column(columnDefinition = "text", nullable = false)
+    private String payload;
+
+    private Instant createdAt;
+
+    private int attempts;
+
+    // Error of the last attempt, or why the event was held back
+    @Column(columnDefinition = "text")
+    private String lastError;
+
+    private Instant deadLetteredAt;
+}
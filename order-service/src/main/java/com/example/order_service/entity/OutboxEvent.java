@@ -0,0 +1,45 @@
+package com.example.order_service.entity;
+
+import com.example.order_service.id.ApplicationId;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Order event waiting to be relayed to Kafka.
+// Written in the same transaction as the Order row, deleted once the broker has acked it
+// (or moved to OutboxDeadLetter once it failed too often).
+// Relayed in id order: Snowflake ids grow with time, so an order's later events sort after its earlier ones
+// (across instances as long as their clocks are closer than the time between the two events).
+@Entity
+@Table(name = "order_outbox")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEvent {
+    @Id
+    @ApplicationId
+    private Long id;
+
+    private Long orderId;
+
+    // "placed", "pending" or "cancelled", same values OrderProducer.sendOrderEvent accepts
+    private String eventType;
+
+    // OrderDto serialized with the kafkaObjectMapper
+    @Column(columnDefinition = "text", nullable = false)
+    private String payload;
+
+    private Instant createdAt;
+
+    // Failed relay attempts so far, the event is moved to order_outbox_dead_letter after order.outbox.max-attempts
+    @Column(columnDefinition = "integer default 0 not null")
+    private int attempts;
+
+    // Set while a relay waits for the broker acks of the event, other relays skip their polls until then
+    private Instant inFlightUntil;
+}
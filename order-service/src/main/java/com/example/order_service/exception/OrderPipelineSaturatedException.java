@@ -0,0 +1,8 @@
+package com.example.order_service.exception;
+
+// The asynchronous order pipeline is at capacity, the submission was not accepted
+public class OrderPipelineSaturatedException extends RuntimeException {
+    public OrderPipelineSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.order_service.exception;
+
+// Product Service could not be called and no recent availability was known for the requested items
+public class ProductServiceUnavailableException extends RuntimeException {
+    public ProductServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
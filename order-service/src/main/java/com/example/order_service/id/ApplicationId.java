@@ -0,0 +1,15 @@
+package com.example.order_service.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks an @Id whose value comes from the application's IdGenerator instead of the database
+@IdGeneratorType(ApplicationIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ApplicationId {
+}
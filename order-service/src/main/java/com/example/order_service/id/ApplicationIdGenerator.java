@@ -0,0 +1,38 @@
+package com.example.order_service.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+/**
+ * Hibernate side of @ApplicationId. The id is known before the INSERT, so Hibernate can batch inserts
+ * (IDENTITY makes it insert row by row to read each key back).
+ *
+ * Hibernate instantiates generators itself, so the IdGenerator bean is handed over through use(),
+ * called by IdGeneratorConfig at startup.
+ */
+public class ApplicationIdGenerator implements BeforeExecutionGenerator {
+
+    private static volatile IdGenerator idGenerator;
+
+    public static void use(IdGenerator generator) {
+        idGenerator = generator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        IdGenerator generator = idGenerator;
+        if (generator == null) {
+            throw new IllegalStateException("No IdGenerator installed, is IdGeneratorConfig loaded?");
+        }
+        return generator.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
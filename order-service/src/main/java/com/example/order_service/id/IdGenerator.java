@@ -0,0 +1,7 @@
+package com.example.order_service.id;
+
+// Source of entity ids assigned by the application before the INSERT
+@FunctionalInterface
+public interface IdGenerator {
+    long nextId();
+}
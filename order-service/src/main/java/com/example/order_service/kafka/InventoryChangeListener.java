@@ -0,0 +1,169 @@
+package com.example.order_service.kafka;
+
+import com.example.order_service.client.InventoryView;
+import com.example.order_service.dto.InventoryChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Feeds InventoryView from product-service's inventory_changed topic.
+ *
+ * Every instance needs the stock of every SKU, so this is a plain consumer without a group:
+ * it is assigned all partitions, reads the compacted topic from the beginning at startup
+ * (the latest stock of each SKU) and then follows it. Nothing is committed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.availability.mode", havingValue = "view")
+public class InventoryChangeListener implements SmartLifecycle {
+
+    private final InventoryView inventoryView;
+    private final ObjectMapper kafkaObjectMapper;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${order.inventory-view.topic:inventory_changed}")
+    private String topic;
+
+    @Value("${order.inventory-view.poll-timeout-ms:200}")
+    private long pollTimeoutMs;
+
+    private volatile boolean running;
+    private volatile KafkaConsumer<String, byte[]> consumer;
+    private Thread thread;
+
+    public InventoryChangeListener(InventoryView inventoryView, ObjectMapper kafkaObjectMapper) {
+        this.inventoryView = inventoryView;
+        this.kafkaObjectMapper = kafkaObjectMapper;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("inventory-view").daemon().start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        KafkaConsumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "order-service-inventory-view");
+
+        try (KafkaConsumer<String, byte[]> kafkaConsumer = new KafkaConsumer<>(props)) {
+            consumer = kafkaConsumer;
+            List<TopicPartition> partitions = awaitPartitions(kafkaConsumer);
+            if (partitions.isEmpty()) {
+                return;
+            }
+            kafkaConsumer.assign(partitions);
+            kafkaConsumer.seekToBeginning(partitions);
+            // The view is loaded once everything that was on the topic at startup has been read
+            Map<TopicPartition, Long> initialEnd = kafkaConsumer.endOffsets(partitions);
+            boolean loaded = false;
+            log.info("📦 Loading inventory view from {} ({} partitions)", topic, partitions.size());
+
+            while (running) {
+                ConsumerRecords<String, byte[]> records = kafkaConsumer.poll(Duration.ofMillis(pollTimeoutMs));
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    apply(record);
+                }
+                if (!loaded && reached(kafkaConsumer, initialEnd)) {
+                    loaded = true;
+                    log.info("✅ Inventory view loaded");
+                }
+                if (loaded && caughtUp(kafkaConsumer, partitions)) {
+                    inventoryView.caughtUp();
+                }
+            }
+        } catch (WakeupException e) {
+            // stop()
+        } catch (Exception e) {
+            log.error("❌ Inventory view listener stopped, availability checks go to Product Service: {}", e.getMessage(), e);
+        } finally {
+            consumer = null;
+        }
+    }
+
+    // The topic is created by product-service, wait for it if order-service came up first
+    private List<TopicPartition> awaitPartitions(KafkaConsumer<String, byte[]> kafkaConsumer) throws InterruptedException {
+        while (running) {
+            List<PartitionInfo> infos = kafkaConsumer.partitionsFor(topic, Duration.ofSeconds(5));
+            if (infos != null && !infos.isEmpty()) {
+                return infos.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList();
+            }
+            log.warn("⚠️ Topic {} not found yet, retrying", topic);
+            Thread.sleep(1000);
+        }
+        return List.of();
+    }
+
+    private void apply(ConsumerRecord<String, byte[]> record) {
+        if (record.value() == null) {
+            inventoryView.remove(record.key());
+            return;
+        }
+        try {
+            inventoryView.apply(kafkaObjectMapper.readValue(record.value(), InventoryChangedEvent.class));
+        } catch (Exception e) {
+            log.warn("⚠️ Skipping unreadable inventory event at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+        }
+    }
+
+    private static boolean reached(KafkaConsumer<String, byte[]> kafkaConsumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(end -> kafkaConsumer.position(end.getKey()) >= end.getValue());
+    }
+
+    // Lag is known from the last fetch; unknown lag counts as behind
+    private static boolean caughtUp(KafkaConsumer<String, byte[]> kafkaConsumer, List<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            OptionalLong lag = kafkaConsumer.currentLag(partition);
+            if (lag.isEmpty() || lag.getAsLong() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
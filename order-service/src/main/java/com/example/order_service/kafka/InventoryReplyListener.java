@@ -0,0 +1,55 @@
+package com.example.order_service.kafka;
+
+import com.example.order_service.dto.InventoryReply;
+import com.example.order_service.service.OrderConfirmationService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Product Service's replies to PENDING orders, applied by OrderConfirmationService
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.availability.mode", havingValue = "saga")
+public class InventoryReplyListener {
+
+    private static final String INVENTORY_RESERVED_TOPIC = "inventory_reserved";
+    private static final String INVENTORY_REJECTED_TOPIC = "inventory_rejected";
+
+    private final OrderConfirmationService orderConfirmationService;
+    private final ObjectMapper kafkaObjectMapper;
+
+    public InventoryReplyListener(OrderConfirmationService orderConfirmationService, ObjectMapper kafkaObjectMapper) {
+        this.orderConfirmationService = orderConfirmationService;
+        this.kafkaObjectMapper = kafkaObjectMapper;
+    }
+
+    // Database errors are not swallowed, the container's error handler retries the record
+    @KafkaListener(topics = {INVENTORY_RESERVED_TOPIC, INVENTORY_REJECTED_TOPIC})
+    public void consumeReply(ConsumerRecord<String, String> record) {
+        InventoryReply reply;
+        try {
+            reply = kafkaObjectMapper.readValue(record.value(), InventoryReply.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.error("❌ Skipping unreadable reply {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            return;
+        }
+        if (reply.getOrderId() == null) {
+            log.error("❌ Skipping reply without order ID at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            return;
+        }
+
+        if (INVENTORY_RESERVED_TOPIC.equals(record.topic())) {
+            orderConfirmationService.reserved(reply.getOrderId());
+        } else {
+            orderConfirmationService.rejected(reply.getOrderId(),
+                    reply.getRejectedSkus() != null ? reply.getRejectedSkus() : List.of());
+        }
+    }
+}
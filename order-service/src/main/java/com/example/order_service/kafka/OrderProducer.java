@@ -3,10 +3,16 @@ package com.example.order_service.kafka;
 
 import com.example.order_service.dto.OrderDto;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Service
 public class OrderProducer {
@@ -14,6 +20,13 @@ public class OrderProducer {
     private static final String ORDER_PLACED_TOPIC = "order_placed";
     private static final String ORDER_CANCELLED_TOPIC = "order_cancelled";
 
+    // Epoch millis at which the event was created with its order, lets consumers measure end-to-end latency
+    public static final String CREATED_AT_HEADER = "order-created-at";
+
+    // Set on the order_placed event of a PENDING order: Product Service takes the stock of the whole order or none
+    // of it and answers on inventory_reserved / inventory_rejected (see OrderConfirmationService)
+    public static final String CONFIRMATION_HEADER = "order-confirmation";
+
     @Autowired
     private KafkaTemplate<String, Object> kafkaTemplate;
 
@@ -21,21 +34,39 @@ public class OrderProducer {
      * Sends an event to the appropriate Kafka topic based on the event type.
      *
      * @param orderDto The details of the order.
-     * @param eventType Type of event, either "placed" or "cancelled".
+     * @param eventType Type of event, "placed", "pending" (placed, awaiting confirmation) or "cancelled".
+     * @return Future completed once the broker has acknowledged the record.
+     */
+    public CompletableFuture<SendResult<String, Object>> sendOrderEvent(OrderDto orderDto, String eventType) {
+        return sendOrderEvent(orderDto, eventType, null);
+    }
+
+    /**
+     * Same as sendOrderEvent(OrderDto, String), with the time the event was created
+     * sent along in the order-created-at header.
      */
-    public void sendOrderEvent(OrderDto orderDto, String eventType) {
+    public CompletableFuture<SendResult<String, Object>> sendOrderEvent(OrderDto orderDto, String eventType, Instant createdAt) {
         String topic = eventType.equalsIgnoreCase("cancelled") ? ORDER_CANCELLED_TOPIC : ORDER_PLACED_TOPIC;
         Long orderId = orderDto.getId();
 
         try {
-            log.info("=== Kafka Producer: Sending '{}' event for order ID: {} ===", eventType, orderId);
-            log.info("Topic: {}", topic);
-            log.info("Order Items Count: {}", orderDto.getOrderItems() != null ? orderDto.getOrderItems().size() : 0);
+            log.debug("Sending '{}' event for order ID: {} to topic '{}' ({} items)", eventType, orderId, topic,
+                    orderDto.getOrderItems() != null ? orderDto.getOrderItems().size() : 0);
 
-            kafkaTemplate.send(topic, orderDto).whenComplete((result, ex) -> {
+            // Keyed by order id: all events of one order land on the same partition, in order
+            String key = orderId != null ? orderId.toString() : null;
+            ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, orderDto);
+            if (eventType.equalsIgnoreCase("pending")) {
+                record.headers().add(CONFIRMATION_HEADER, "requested".getBytes(StandardCharsets.UTF_8));
+            }
+            if (createdAt != null) {
+                record.headers().add(CREATED_AT_HEADER,
+                        Long.toString(createdAt.toEpochMilli()).getBytes(StandardCharsets.UTF_8));
+            }
+            return kafkaTemplate.send(record).whenComplete((result, ex) -> {
                 if (ex == null) {
-                    log.info("✅ Kafka message sent successfully to topic '{}' for order ID: {}", topic, orderId);
-                    log.info("Partition: {}, Offset: {}",
+                    log.debug("Kafka message sent to topic '{}' for order ID: {}, partition: {}, offset: {}",
+                        topic, orderId,
                         result.getRecordMetadata().partition(),
                         result.getRecordMetadata().offset());
                 } else {
@@ -45,7 +76,7 @@ public class OrderProducer {
 
         } catch (Exception e) {
             log.error("❌ Exception while sending '{}' event for order ID: {}. Error: {}", eventType, orderId, e.getMessage(), e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
-
@@ -0,0 +1,300 @@
+package com.example.order_service.kafka;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.entity.OutboxDeadLetter;
+import com.example.order_service.entity.OutboxEvent;
+import com.example.order_service.repository.OutboxDeadLetterRepository;
+import com.example.order_service.repository.OutboxEventRepository;
+import com.example.order_service.service.OrderPlacementService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the order outbox to the order_placed / order_cancelled topics.
+ *
+ * Each poll claims a batch of the oldest events in a short transaction (locked, marked in flight,
+ * committed), sends them all, waits for the broker acks outside any transaction and then deletes the
+ * events that were acked. Only the acked prefix of the batch is deleted, so a failed send is retried
+ * before anything queued after it, keeping per-order event order.
+ *
+ * An event that keeps failing on its own (a payload that can't be serialized, a record too large,
+ * a missing topic while other events go through) is moved to the dead-letter table after
+ * order.outbox.max-attempts, together with the later events of its order, so it can't block the outbox.
+ * A broker outage fails every send and is not charged to any event.
+ *
+ * Only one instance relays at a time (OutboxEventRepository.tryLockRelay), the others skip their polls,
+ * also while the head of the outbox is in flight. Relays sharing the outbox would each send part of it,
+ * so an order's events could go out of order.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    // Time after the send timeout for the relay to settle the batch before its events count as abandoned
+    private static final Duration IN_FLIGHT_GRACE = Duration.ofSeconds(5);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxDeadLetterRepository outboxDeadLetterRepository;
+    private final OrderProducer orderProducer;
+    private final ObjectMapper kafkaObjectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter deadLetteredCounter;
+    private final Timer batchTimer;
+    private final Timer publishAckTimer;
+
+    // createdAt (epoch millis) of the oldest event still pending at the last poll, 0 when drained
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${order.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @PostConstruct
+    void checkSettings() {
+        if (batchSize < 1) {
+            throw new IllegalStateException("order.outbox.batch-size must be at least 1, was " + batchSize);
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalStateException("order.outbox.max-attempts must be at least 1, was " + maxAttempts);
+        }
+    }
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxDeadLetterRepository outboxDeadLetterRepository,
+                       OrderProducer orderProducer,
+                       ObjectMapper kafkaObjectMapper,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxDeadLetterRepository = outboxDeadLetterRepository;
+        this.orderProducer = orderProducer;
+        this.kafkaObjectMapper = kafkaObjectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.publishedCounter = meterRegistry.counter("orders.outbox.relay.published");
+        this.failedCounter = meterRegistry.counter("orders.outbox.relay.failed");
+        this.deadLetteredCounter = meterRegistry.counter("orders.outbox.relay.dead.lettered");
+        this.batchTimer = meterRegistry.timer("orders.outbox.relay.batch.time");
+        this.publishAckTimer = OrderPlacementService.stageTimer(meterRegistry, "publish_ack");
+        Gauge.builder("orders.outbox.relay.lag", oldestPendingMillis, this::lagSeconds)
+                .description("Age of the oldest order event not yet published to Kafka")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:200}")
+    public void relay() {
+        // Keep draining while batches come back full, then wait for the next poll
+        int relayed;
+        do {
+            Timer.Sample sample = Timer.start();
+            relayed = relayBatch();
+            sample.stop(batchTimer);
+        } while (relayed == batchSize);
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> claimBatch());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(send(event));
+        }
+
+        // Outcome of every send, null when acked
+        List<Exception> errors = new ArrayList<>(batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                errors.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.add(e);
+                break;
+            } catch (Exception e) {
+                errors.add(e);
+            }
+        }
+
+        // The acked prefix of the batch is published, the first failure is retried before anything after it
+        int acked = 0;
+        while (acked < errors.size() && errors.get(acked) == null) {
+            // Order committed to the outbox until the broker acked its event
+            publishAckTimer.record(Duration.between(batch.get(acked).getCreatedAt(), Instant.now()));
+            acked++;
+        }
+        OutboxEvent failed = null;
+        boolean charged = false;
+        if (acked < batch.size()) {
+            failed = batch.get(acked);
+            Exception error = acked < errors.size() ? errors.get(acked) : null;
+            // Charged to the event only if the failure is its own: not a broker outage, which fails every send
+            charged = error != null && !(error instanceof InterruptedException)
+                    && (!isRetriable(error) || errors.subList(acked + 1, errors.size()).contains(null));
+            log.warn("Outbox event {} for order ID: {} not acked, will retry: {}",
+                    failed.getId(), failed.getOrderId(), error != null ? error.getMessage() : "interrupted");
+            failedCounter.increment();
+        }
+
+        OutboxEvent failedEvent = failed;
+        boolean failureCharged = charged;
+        int ackedCount = acked;
+        transactionTemplate.executeWithoutResult(status -> settle(batch, ackedCount, failedEvent, failureCharged,
+                failureCharged ? errors.get(ackedCount) : null));
+
+        if (acked < batch.size()) {
+            // Stop draining, the failed event is retried on the next poll
+            return 0;
+        }
+        return acked;
+    }
+
+    // Locks the oldest events and marks them in flight, the transaction ends before they are sent
+    private List<OutboxEvent> claimBatch() {
+        if (!outboxEventRepository.tryLockRelay()) {
+            // Another instance is relaying and reports the lag
+            oldestPendingMillis.set(0);
+            return List.of();
+        }
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            oldestPendingMillis.set(0);
+            return List.of();
+        }
+        Instant now = Instant.now();
+        // Events are claimed from the head of the outbox, an in-flight head means another relay awaits its acks
+        Instant headInFlightUntil = batch.get(0).getInFlightUntil();
+        if (headInFlightUntil != null && headInFlightUntil.isAfter(now)) {
+            oldestPendingMillis.set(0);
+            return List.of();
+        }
+        oldestPendingMillis.set(batch.get(0).getCreatedAt().toEpochMilli());
+
+        // Events of orders with a dead-lettered event are held back with it instead of being sent out of order
+        Set<Long> orderIds = new HashSet<>();
+        batch.forEach(event -> {
+            if (event.getOrderId() != null) {
+                orderIds.add(event.getOrderId());
+            }
+        });
+        Set<Long> deadOrders = orderIds.isEmpty() ? Set.of()
+                : new HashSet<>(outboxDeadLetterRepository.findOrderIdsIn(orderIds));
+        List<OutboxEvent> claimed = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            if (deadOrders.contains(event.getOrderId())) {
+                deadLetter(event, event.getAttempts(), "an earlier event of the order was dead-lettered");
+            } else {
+                claimed.add(event);
+            }
+        }
+
+        if (!claimed.isEmpty()) {
+            outboxEventRepository.markInFlight(claimed.stream().map(OutboxEvent::getId).toList(),
+                    now.plusMillis(sendTimeoutMs).plus(IN_FLIGHT_GRACE));
+        }
+        return claimed;
+    }
+
+    // Deletes the acked events and hands the rest back, the failed one with its attempt counted if charged
+    private void settle(List<OutboxEvent> batch, int acked, OutboxEvent failed, boolean charged, Exception error) {
+        if (acked > 0) {
+            outboxEventRepository.deleteAllByIdInBatch(batch.subList(0, acked).stream().map(OutboxEvent::getId).toList());
+            publishedCounter.increment(acked);
+        }
+        List<Long> unacked = new ArrayList<>(batch.size() - acked);
+        for (OutboxEvent event : batch.subList(acked, batch.size())) {
+            if (event != failed || !charged) {
+                unacked.add(event.getId());
+            }
+        }
+        if (charged) {
+            int attempts = failed.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                deadLetter(failed, attempts, error.getMessage());
+            } else {
+                outboxEventRepository.recordFailedAttempt(failed.getId());
+            }
+        }
+        if (!unacked.isEmpty()) {
+            outboxEventRepository.releaseInFlight(unacked);
+        }
+    }
+
+    private void deadLetter(OutboxEvent event, int attempts, String error) {
+        outboxDeadLetterRepository.save(OutboxDeadLetter.builder()
+                .id(event.getId())
+                .orderId(event.getOrderId())
+                .eventType(event.getEventType())
+                .payload(event.getPayload())
+                .createdAt(event.getCreatedAt())
+                .attempts(attempts)
+                .lastError(error)
+                .deadLetteredAt(Instant.now())
+                .build());
+        outboxEventRepository.deleteAllByIdInBatch(List.of(event.getId()));
+        deadLetteredCounter.increment();
+        log.error("❌ Outbox event {} ('{}') for order ID: {} moved to the dead-letter table after {} attempts: {}",
+                event.getId(), event.getEventType(), event.getOrderId(), attempts, error);
+    }
+
+    // Broker-side conditions that fail any event, and the relay's own wait running out
+    private static boolean isRetriable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<?> send(OutboxEvent event) {
+        try {
+            OrderDto orderDto = kafkaObjectMapper.readValue(event.getPayload(), OrderDto.class);
+            return orderProducer.sendOrderEvent(orderDto, event.getEventType(), event.getCreatedAt());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private double lagSeconds(AtomicLong oldestMillis) {
+        long oldest = oldestMillis.get();
+        return oldest == 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.order_service.kafka.codec;
+
+import com.example.order_service.dto.OrderDto;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Value serializer for order events. Writes OrderDto with OrderEventCodec when the binary format is selected,
+ * anything else (or everything, in json mode) with the JSON serializer.
+ * The event-format header tells the consumer which one was used.
+ */
+public class OrderEventSerializer implements Serializer<Object> {
+
+    private static final byte[] BINARY_V1 = OrderEventCodec.BINARY_V1.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] JSON = OrderEventCodec.JSON.getBytes(StandardCharsets.UTF_8);
+
+    private final boolean binary;
+    private final JsonSerializer<Object> jsonSerializer;
+
+    public OrderEventSerializer(boolean binary, JsonSerializer<Object> jsonSerializer) {
+        this.binary = binary;
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        // No headers to mark the format, so use the format every consumer understands
+        return jsonSerializer.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (binary && data instanceof OrderDto orderDto) {
+            headers.remove(OrderEventCodec.FORMAT_HEADER);
+            headers.add(OrderEventCodec.FORMAT_HEADER, BINARY_V1);
+            return OrderEventCodec.encode(orderDto);
+        }
+        headers.remove(OrderEventCodec.FORMAT_HEADER);
+        headers.add(OrderEventCodec.FORMAT_HEADER, JSON);
+        return jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
@@ -3,7 +3,45 @@ package com.example.order_service.repository;
 
 
 import com.example.order_service.entity.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
-}
\ No newline at end of file
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    // Order and its items in one select (left join), instead of a second select for the lazy collection
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(Long id);
+
+    // Status transition that only happens if nobody else moved the order first, returns the rows updated (0 or 1)
+    // Clears the persistence context so orders loaded before are read again with their new status
+    @Modifying(clearAutomatically = true)
+    @Query("update Order o set o.orderStatus = :status where o.id = :id and o.orderStatus = :expected")
+    int updateStatus(@Param("id") Long id, @Param("expected") String expected, @Param("status") String status);
+
+    // Saga: updateStatus that also marks the order's inventory_reserved reply as handled
+    @Modifying(clearAutomatically = true)
+    @Query("update Order o set o.orderStatus = :status, o.reservationHandled = true"
+            + " where o.id = :id and o.orderStatus = :expected")
+    int updateStatusHandlingReservation(@Param("id") Long id, @Param("expected") String expected,
+                                        @Param("status") String status);
+
+    // Saga: claims the reservation of an order that left PENDING without it (timed out, cancelled),
+    // returns 1 only the first time, so its stock is handed back once
+    @Modifying(clearAutomatically = true)
+    @Query("update Order o set o.reservationHandled = true where o.id = :id and o.orderStatus in :statuses"
+            + " and (o.reservationHandled is null or o.reservationHandled = false)")
+    int claimUnusedReservation(@Param("id") Long id, @Param("statuses") Collection<String> statuses);
+
+    @Query("select o.id from Order o where o.orderStatus = :status and o.createdAt < :before order by o.createdAt")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") String status, @Param("before") Instant before,
+                                            Pageable pageable);
+}
@@ -0,0 +1,42 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderSummary;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * One page of orders in (orderDate, id) order, using keyset pagination:
+     * the page starts right after the (afterDate, afterId) row of the previous page,
+     * so the database seeks in the index instead of skipping OFFSET rows.
+     *
+     * @param status Only orders with this status, or null for all.
+     * @param from Only orders placed at or after this time, or null.
+     * @param afterDate orderDate of the last row of the previous page, null for the first page.
+     * @param afterId id of the last row of the previous page, null for the first page.
+     */
+    List<OrderSummary> findSummaries(String status, LocalDateTime from,
+                                     LocalDateTime afterDate, Long afterId, int limit);
+
+    /**
+     * Cancels up to limit orders in one statement on PostgreSQL (a locking select plus an update elsewhere):
+     * the matching orders that are still cancellable (OrderStatus.isCancellable) are locked and set to
+     * ORDER_CANCELLED together, the others are left alone. Must run inside a transaction.
+     * Running it again over the same orders changes nothing.
+     *
+     * @param orderIds Only these orders, or null to select by the filter instead.
+     * @param status Filter: only orders with this status, or null for any cancellable one.
+     * @param from Filter: only orders placed at or after this time, or null.
+     * @param to Filter: only orders placed before this time, or null.
+     * @return The status each cancelled order had before, by order id (lowest ids first).
+     */
+    Map<Long, String> cancelOrders(List<Long> orderIds, String status, LocalDateTime from, LocalDateTime to, int limit);
+
+    // SKU and quantity of every item of the orders, for their 'cancelled' events
+    Map<Long, List<OrderItemDto>> findItemsByOrderIds(Collection<Long> orderIds);
+}
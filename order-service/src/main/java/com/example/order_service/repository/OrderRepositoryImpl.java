@@ -0,0 +1,153 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderSummary;
+import com.example.order_service.entity.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    // Keep in line with OrderStatus.isCancellable
+    private static final String CANCELLABLE_STATUSES = "('" + OrderStatus.ORDER_PLACED.name() + "', '"
+            + OrderStatus.CONFIRMED.name() + "', '" + OrderStatus.PENDING.name() + "')";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Whether cancelOrders can use PostgreSQL's UPDATE ... FROM ... RETURNING, looked up on first use
+    private volatile Boolean postgres;
+
+    @Override
+    public List<OrderSummary> findSummaries(String status, LocalDateTime from,
+                                            LocalDateTime afterDate, Long afterId, int limit) {
+        // Only the filters that are set go into the query, so each shape can use its index
+        // (orders(order_status, order_date, id) or orders(order_date, id))
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.order_service.dto.OrderSummary(o.id, o.orderDate, o.totalPrice, o.orderStatus)"
+                        + " from Order o where o.orderDate is not null");
+        if (status != null) {
+            jpql.append(" and o.orderStatus = :status");
+        }
+        if (from != null) {
+            jpql.append(" and o.orderDate >= :from");
+        }
+        if (afterDate != null && afterId != null) {
+            jpql.append(" and (o.orderDate > :afterDate or (o.orderDate = :afterDate and o.id > :afterId))");
+        }
+        jpql.append(" order by o.orderDate, o.id");
+
+        TypedQuery<OrderSummary> query = entityManager.createQuery(jpql.toString(), OrderSummary.class);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (afterDate != null && afterId != null) {
+            query.setParameter("afterDate", afterDate);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Map<Long, String> cancelOrders(List<Long> orderIds, String status, LocalDateTime from,
+                                          LocalDateTime to, int limit) {
+        StringBuilder select = new StringBuilder("SELECT id, order_status FROM orders WHERE order_status IN ")
+                .append(CANCELLABLE_STATUSES);
+        List<Object> args = new ArrayList<>();
+        if (orderIds != null) {
+            select.append(" AND id IN (").append(placeholders(orderIds.size())).append(")");
+            args.addAll(orderIds);
+        } else {
+            if (status != null) {
+                select.append(" AND order_status = ?");
+                args.add(status);
+            }
+            if (from != null) {
+                select.append(" AND order_date >= ?");
+                args.add(Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                select.append(" AND order_date < ?");
+                args.add(Timestamp.valueOf(to));
+            }
+        }
+        select.append(" ORDER BY id LIMIT ? FOR UPDATE");
+        args.add(limit);
+
+        return isPostgres() ? cancelReturning(select, args) : cancelSelected(select, args);
+    }
+
+    // PostgreSQL: one statement. The subquery locks the rows and keeps their old status, which RETURNING would otherwise not see
+    private Map<Long, String> cancelReturning(CharSequence select, List<Object> args) {
+        String sql = "UPDATE orders o SET order_status = '" + OrderStatus.ORDER_CANCELLED.name() + "' FROM ("
+                + select + ") old WHERE o.id = old.id RETURNING o.id, old.order_status";
+        Map<Long, String> cancelled = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            cancelled.put(rs.getLong(1), rs.getString(2));
+        }, args.toArray());
+        return cancelled;
+    }
+
+    // Other databases (H2 in tests and the load test) have no UPDATE ... FROM ... RETURNING:
+    // lock and read the rows first, then update exactly those. The locks keep anyone else from changing them in between.
+    private Map<Long, String> cancelSelected(CharSequence select, List<Object> args) {
+        Map<Long, String> cancelled = new LinkedHashMap<>();
+        jdbcTemplate.query(select.toString(), rs -> {
+            cancelled.put(rs.getLong(1), rs.getString(2));
+        }, args.toArray());
+        if (!cancelled.isEmpty()) {
+            jdbcTemplate.update("UPDATE orders SET order_status = '" + OrderStatus.ORDER_CANCELLED.name()
+                    + "' WHERE id IN (" + placeholders(cancelled.size()) + ")", cancelled.keySet().toArray());
+        }
+        return cancelled;
+    }
+
+    private boolean isPostgres() {
+        Boolean postgres = this.postgres;
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            this.postgres = postgres;
+        }
+        return postgres;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    @Override
+    public Map<Long, List<OrderItemDto>> findItemsByOrderIds(Collection<Long> orderIds) {
+        Map<Long, List<OrderItemDto>> itemsByOrder = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return itemsByOrder;
+        }
+        String sql = "SELECT order_id, product_id, quantity FROM order_items WHERE order_id IN ("
+                + placeholders(orderIds.size()) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            itemsByOrder.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                    .add(OrderItemDto.builder().skuCode(rs.getString(2)).quantity(rs.getInt(3)).build());
+        }, orderIds.toArray());
+        return itemsByOrder;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.entity.OutboxDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxDeadLetterRepository extends JpaRepository<OutboxDeadLetter, Long> {
+
+    // Orders among the given ones that already have a dead-lettered event
+    @Query("select distinct d.orderId from OutboxDeadLetter d where d.orderId in :orderIds")
+    List<Long> findOrderIdsIn(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -0,0 +1,38 @@
+package com.example.order_service.repository;
+
+import com.example.order_service.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, OutboxEventRepositoryCustom {
+
+    // Oldest pending events first. A plain FOR UPDATE, not SKIP LOCKED: a relay that skipped the rows
+    // another one holds could send an order's later event before its earlier one.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from OutboxEvent e order by e.id")
+    List<OutboxEvent> lockNextBatch(Pageable pageable);
+
+    // Claims the events for a relay that sends them after its transaction has committed
+    @Modifying
+    @Query("update OutboxEvent e set e.inFlightUntil = :until where e.id in :ids")
+    int markInFlight(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    // Hands unacked events back to the next poll
+    @Modifying
+    @Query("update OutboxEvent e set e.inFlightUntil = null where e.id in :ids")
+    int releaseInFlight(@Param("ids") Collection<Long> ids);
+
+    // Hands an event whose send failed back to the next poll, counting the attempt
+    @Modifying
+    @Query("update OutboxEvent e set e.inFlightUntil = null, e.attempts = e.attempts + 1 where e.id = :id")
+    int recordFailedAttempt(@Param("id") Long id);
+}
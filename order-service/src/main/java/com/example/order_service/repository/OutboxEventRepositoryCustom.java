@@ -0,0 +1,13 @@
+package com.example.order_service.repository;
+
+public interface OutboxEventRepositoryCustom {
+
+    /**
+     * Makes the caller the only active outbox relay until its transaction ends. Must run inside a transaction.
+     * On PostgreSQL a transaction-level advisory lock, elsewhere always true and relays queue on the row locks
+     * of OutboxEventRepository.lockNextBatch instead.
+     *
+     * @return false if another relay holds the lock, the caller should skip this poll.
+     */
+    boolean tryLockRelay();
+}
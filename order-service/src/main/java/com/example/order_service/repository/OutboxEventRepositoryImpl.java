@@ -0,0 +1,36 @@
+package com.example.order_service.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+    // Advisory lock key of the outbox relay ("outbox" in ASCII), any constant no other advisory lock uses
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Whether pg_try_advisory_xact_lock is available, looked up on first use
+    private volatile Boolean postgres;
+
+    @Override
+    public boolean tryLockRelay() {
+        if (!isPostgres()) {
+            return true;
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK_KEY));
+    }
+
+    private boolean isPostgres() {
+        Boolean postgres = this.postgres;
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            this.postgres = postgres;
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.ProductAvailability;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Available quantity per SKU from one availability or reservation response, hashed once so
+ * matching an order's lines is a single pass however large the basket.
+ *
+ * Quantities are drawn down as lines are filled, so several lines (or several orders of a batch)
+ * for the same SKU never get more than the stock reported for it. Not thread-safe, use one per request.
+ */
+public class AvailabilityIndex {
+
+    private final Map<String, Integer> remainingBySku;
+
+    private AvailabilityIndex(Map<String, Integer> remainingBySku) {
+        this.remainingBySku = remainingBySku;
+    }
+
+    /**
+     * A response without availableQuantity (older Product Service) doesn't say how much is there,
+     * so its SKU is treated as unavailable rather than as covering any quantity.
+     */
+    public static AvailabilityIndex of(List<ProductAvailability> availabilityList) {
+        Map<String, Integer> remainingBySku = new HashMap<>(availabilityList.size() * 2);
+        for (ProductAvailability availability : availabilityList) {
+            int quantity = availability.getAvailableQuantity() != null ? availability.getAvailableQuantity() : 0;
+            // Lines of the same SKU carry the same quantity, keep the lower one if they disagree
+            remainingBySku.merge(availability.getSkuCode(), Math.max(quantity, 0), Math::min);
+        }
+        return new AvailabilityIndex(remainingBySku);
+    }
+
+    /**
+     * Fills the order lines from the remaining quantities according to the policy.
+     * Partially filled lines are copies with the reduced quantity, the given items are not modified.
+     *
+     * @return The lines to order, empty if the order can't be placed under the policy.
+     */
+    public List<OrderItemDto> fill(List<OrderItemDto> items, FulfilmentPolicy policy) {
+        if (policy == FulfilmentPolicy.REJECT) {
+            return fillCompletely(items);
+        }
+
+        List<OrderItemDto> filled = new ArrayList<>(items.size());
+        for (OrderItemDto item : items) {
+            int remaining = remainingBySku.getOrDefault(item.getSkuCode(), 0);
+            int quantity = Math.min(item.getQuantity(), remaining);
+            if (quantity < item.getQuantity() && (policy == FulfilmentPolicy.DROP_LINE || quantity == 0)) {
+                continue;
+            }
+            filled.add(quantity == item.getQuantity() ? item
+                    : new OrderItemDto(item.getId(), item.getSkuCode(), item.getProductName(), quantity, item.getPrice()));
+            remainingBySku.put(item.getSkuCode(), remaining - quantity);
+        }
+        return filled;
+    }
+
+    /**
+     * @return Quantity per SKU not handed out to any line yet, SKUs with nothing left are absent.
+     */
+    public Map<String, Integer> remaining() {
+        Map<String, Integer> remaining = new HashMap<>();
+        remainingBySku.forEach((skuCode, quantity) -> {
+            if (quantity > 0) {
+                remaining.put(skuCode, quantity);
+            }
+        });
+        return remaining;
+    }
+
+    // All lines or none: quantities are only drawn down once the whole order fits
+    private List<OrderItemDto> fillCompletely(List<OrderItemDto> items) {
+        Map<String, Integer> demandBySku = new HashMap<>(items.size() * 2);
+        for (OrderItemDto item : items) {
+            int demand = demandBySku.merge(item.getSkuCode(), item.getQuantity(), Integer::sum);
+            if (demand > remainingBySku.getOrDefault(item.getSkuCode(), 0)) {
+                return List.of();
+            }
+        }
+        demandBySku.forEach((skuCode, demand) -> remainingBySku.merge(skuCode, -demand, Integer::sum));
+        return new ArrayList<>(items);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.order_service.service;
+
+import java.util.Locale;
+
+/**
+ * What to do with order lines Product Service can't fully cover.
+ */
+public enum FulfilmentPolicy {
+
+    // Place the order only if every line can be filled completely
+    REJECT,
+
+    // Leave out lines that can't be filled completely (the original /create behaviour)
+    DROP_LINE,
+
+    // Fill each line with whatever is left, leave out lines with nothing left
+    PARTIAL;
+
+    /**
+     * Lenient parsing for request parameters and properties: "drop_line", "drop-line" and "DROP_LINE" all work.
+     *
+     * @throws IllegalArgumentException for an unknown policy
+     */
+    public static FulfilmentPolicy from(String value) {
+        try {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown fulfilment policy: " + value
+                    + ", expected reject, drop_line or partial");
+        }
+    }
+}
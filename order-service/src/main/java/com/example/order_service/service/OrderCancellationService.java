@@ -0,0 +1,134 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderCancelBatchRequest;
+import com.example.order_service.dto.OrderCancelBatchResponse;
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cancels many orders at once (PUT /cancel/batch), e.g. everything placed while a payment provider was failing.
+ *
+ * Works in chunks of order.cancel.batch.chunk-size, one transaction each: a single UPDATE (on PostgreSQL) moves the
+ * chunk's cancellable orders to ORDER_CANCELLED and returns only those it changed, and their 'cancelled' events go
+ * into the outbox in the same transaction, saved as one JDBC batch. OutboxRelay then sends them in batches.
+ * An order that was already cancelled is never returned again, so re-running a request restores no stock twice.
+ */
+@Slf4j
+@Service
+public class OrderCancellationService {
+
+    private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer chunkTimer;
+
+    @Value("${order.cancel.batch.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${order.cancel.batch.max-orders:10000}")
+    private int maxOrders;
+
+    @PostConstruct
+    void checkSettings() {
+        if (chunkSize < 1) {
+            throw new IllegalStateException("order.cancel.batch.chunk-size must be at least 1, was " + chunkSize);
+        }
+        if (maxOrders < 1) {
+            throw new IllegalStateException("order.cancel.batch.max-orders must be at least 1, was " + maxOrders);
+        }
+    }
+
+    private record Chunk(List<Long> cancelled, boolean full) {
+    }
+
+    public OrderCancellationService(OrderRepository orderRepository, OutboxService outboxService,
+                                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkTimer = meterRegistry.timer("orders.cancel.batch.chunk.time");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request has neither ids nor a filter, both, too many ids,
+     *                                  or a status orders can't be cancelled from.
+     */
+    public OrderCancelBatchResponse cancelOrders(OrderCancelBatchRequest request) {
+        List<Long> orderIds = request.getOrderIds();
+        boolean filtered = request.getStatus() != null || request.getFrom() != null || request.getTo() != null;
+        if ((orderIds == null || orderIds.isEmpty()) == !filtered) {
+            throw new IllegalArgumentException("Give either orderIds or a filter (status, from, to)");
+        }
+        if (orderIds != null && orderIds.size() > maxOrders) {
+            throw new IllegalArgumentException("At most " + maxOrders + " orders per request");
+        }
+        if (request.getStatus() != null && !OrderStatus.isCancellable(request.getStatus())) {
+            throw new IllegalArgumentException("Orders with status " + request.getStatus() + " can't be cancelled");
+        }
+
+        List<Long> cancelled = new ArrayList<>();
+        boolean hasMore = false;
+        if (orderIds != null) {
+            List<Long> distinct = orderIds.stream().distinct().toList();
+            for (int from = 0; from < distinct.size(); from += chunkSize) {
+                List<Long> ids = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+                cancelled.addAll(cancelChunk(ids, request, ids.size()).cancelled());
+            }
+        } else {
+            // Cancelled orders no longer match, so every chunk picks up where the last one stopped
+            Chunk chunk;
+            do {
+                chunk = cancelChunk(null, request, Math.min(chunkSize, maxOrders - cancelled.size()));
+                cancelled.addAll(chunk.cancelled());
+            } while (chunk.full() && cancelled.size() < maxOrders);
+            hasMore = chunk.full();
+        }
+
+        meterRegistry.counter("orders.cancelled.count").increment(cancelled.size());
+        log.info("🛑 Cancelled {} orders in bulk", cancelled.size());
+        return OrderCancelBatchResponse.builder()
+                .cancelledOrderIds(cancelled)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private Chunk cancelChunk(List<Long> orderIds, OrderCancelBatchRequest filter, int limit) {
+        return chunkTimer.record(() -> transactionTemplate.execute(status -> {
+            Map<Long, String> cancelled = orderRepository.cancelOrders(orderIds, filter.getStatus(),
+                    filter.getFrom(), filter.getTo(), limit);
+
+            // Pending saga orders hold no stock yet, it is handed back when Product Service replies
+            List<Long> withStock = cancelled.entrySet().stream()
+                    .filter(entry -> !OrderStatus.PENDING.name().equals(entry.getValue()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            Map<Long, List<OrderItemDto>> itemsByOrder = orderRepository.findItemsByOrderIds(withStock);
+            List<OrderDto> events = new ArrayList<>(withStock.size());
+            for (Long orderId : withStock) {
+                OrderDto orderDto = new OrderDto();
+                orderDto.setId(orderId);
+                orderDto.setOrderItems(itemsByOrder.getOrDefault(orderId, List.of()));
+                events.add(orderDto);
+            }
+            outboxService.enqueueAll(events, "cancelled");
+
+            return new Chunk(List.copyOf(cancelled.keySet()), cancelled.size() == limit);
+        }));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.entity.Order;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Order side of the confirmation saga (order.availability.mode=saga).
+ *
+ * Orders are saved as PENDING without asking Product Service, their order_placed event asks it to take
+ * the stock of the whole order. Its reply moves the order to CONFIRMED or REJECTED; an order without a reply
+ * after order.saga.confirmation-timeout-ms is REJECTED. Every transition is a conditional update from PENDING,
+ * so replies, timeouts and cancellations can race without overwriting each other.
+ *
+ * Stock taken for an order that is no longer pending when the reply arrives (timed out or cancelled meanwhile)
+ * is handed back with an order_cancelled event, once: the order's reservationHandled flag is set in the same
+ * conditional update, so a redelivered reply finds it set and does nothing.
+ *
+ * A timeout therefore emits nothing itself: Product Service retries its reply until it is sent, so stock it took
+ * for an order that timed out is always followed by a late inventory_reserved reply, and handed back then.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "order.availability.mode", havingValue = "saga")
+public class OrderConfirmationService {
+
+    private static final String PENDING = OrderStatus.PENDING.name();
+    private static final String CONFIRMED = OrderStatus.CONFIRMED.name();
+    private static final String REJECTED = OrderStatus.REJECTED.name();
+    // Statuses a pending order leaves to without using its stock
+    private static final List<String> UNUSED_RESERVATION_STATUSES =
+            List.of(REJECTED, OrderStatus.ORDER_CANCELLED.name());
+
+    private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+
+    private final Counter confirmedCounter;
+    private final Counter rejectedCounter;
+    private final Counter timedOutCounter;
+    private final Counter compensatedCounter;
+    private final Timer confirmationTimer;
+
+    @Value("${order.saga.confirmation-timeout-ms:30000}")
+    private long confirmationTimeoutMs;
+
+    // Pending orders expired per transaction by rejectExpired
+    @Value("${order.saga.timeout-batch-size:500}")
+    private int timeoutBatchSize;
+
+    public OrderConfirmationService(OrderRepository orderRepository, OutboxService outboxService,
+                                    MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.outboxService = outboxService;
+
+        this.confirmedCounter = meterRegistry.counter("orders.saga.outcome", "outcome", "confirmed");
+        this.rejectedCounter = meterRegistry.counter("orders.saga.outcome", "outcome", "rejected");
+        this.timedOutCounter = meterRegistry.counter("orders.saga.outcome", "outcome", "timed_out");
+        this.compensatedCounter = meterRegistry.counter("orders.saga.compensated");
+        this.confirmationTimer = OrderPlacementService.stageTimer(meterRegistry, "confirmation");
+    }
+
+    // Product Service took the stock
+    @Transactional
+    public void reserved(Long orderId) {
+        Order order = orderRepository.findWithItemsById(orderId).orElse(null);
+        if (order == null) {
+            log.warn("⚠️ Stock reserved for unknown order ID: {}", orderId);
+            return;
+        }
+        if (transition(order, CONFIRMED)) {
+            confirmedCounter.increment();
+            return;
+        }
+
+        // Timed out or cancelled before the reply came, the stock isn't needed any more. Only the delivery
+        // that marks the reservation as handled hands it back, a redelivered reply (or one for a confirmed order) does nothing
+        if (orderRepository.claimUnusedReservation(orderId, UNUSED_RESERVATION_STATUSES) == 0) {
+            log.debug("Reply for order ID: {} already handled", orderId);
+            return;
+        }
+        order = orderRepository.findWithItemsById(orderId).orElseThrow();
+        log.info("↩️ Order ID: {} is {}, handing back the stock reserved for it", orderId, order.getOrderStatus());
+        outboxService.enqueue(toDto(order), "cancelled");
+        compensatedCounter.increment();
+    }
+
+    // Product Service couldn't take the stock, nothing was held
+    @Transactional
+    public void rejected(Long orderId, List<String> rejectedSkus) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            log.warn("⚠️ Stock rejected for unknown order ID: {}", orderId);
+            return;
+        }
+        if (transition(order, REJECTED)) {
+            rejectedCounter.increment();
+            log.debug("Order ID: {} rejected, not enough stock for {}", orderId, rejectedSkus);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.saga.timeout-check-interval-ms:5000}")
+    @Transactional
+    public void rejectExpired() {
+        Instant before = Instant.now().minusMillis(confirmationTimeoutMs);
+        List<Long> expired = orderRepository.findIdsByStatusCreatedBefore(PENDING, before,
+                PageRequest.of(0, timeoutBatchSize));
+        int rejected = 0;
+        for (Long orderId : expired) {
+            rejected += orderRepository.updateStatus(orderId, PENDING, REJECTED);
+        }
+        if (rejected > 0) {
+            timedOutCounter.increment(rejected);
+            log.warn("⏱️ Rejected {} orders without a stock confirmation after {} ms", rejected, confirmationTimeoutMs);
+        }
+    }
+
+    private boolean transition(Order order, String status) {
+        if (!PENDING.equals(order.getOrderStatus())) {
+            return false;
+        }
+        int updated = CONFIRMED.equals(status)
+                ? orderRepository.updateStatusHandlingReservation(order.getId(), PENDING, status)
+                : orderRepository.updateStatus(order.getId(), PENDING, status);
+        if (updated == 0) {
+            return false;
+        }
+        if (order.getCreatedAt() != null) {
+            confirmationTimer.record(Duration.between(order.getCreatedAt(), Instant.now()));
+        }
+        return true;
+    }
+
+    private static OrderDto toDto(Order order) {
+        OrderDto orderDto = new OrderDto();
+        orderDto.setId(order.getId());
+        orderDto.setTotalPrice(order.getTotalPrice());
+        orderDto.setOrderDate(order.getOrderDate());
+        orderDto.setOrderItems(order.getOrderItems().stream()
+                .map(item -> OrderItemDto.builder()
+                        .skuCode(item.getProductId())
+                        .quantity(item.getQuantity())
+                        .build())
+                .toList());
+        return orderDto;
+    }
+}
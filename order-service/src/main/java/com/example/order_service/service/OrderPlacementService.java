@@ -0,0 +1,292 @@
+package com.example.order_service.service;
+
+import com.example.order_service.client.InventoryView;
+import com.example.order_service.client.ProductServiceClient;
+import com.example.order_service.dto.OrderBatchResult;
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderResponse;
+import com.example.order_service.dto.ProductAvailability;
+import com.example.order_service.dto.ReservationResponse;
+import com.example.order_service.entity.OrderStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The steps of placing an order, shared by the synchronous /create endpoint
+ * and the asynchronous submission pipeline.
+ */
+@Slf4j
+@Service
+public class OrderPlacementService {
+
+    private static final String RESERVE_MODE = "reserve";
+    private static final String VIEW_MODE = "view";
+    private static final String SAGA_MODE = "saga";
+
+    private final OrderService orderService;
+    private final ProductServiceClient productServiceClient;
+    // Only present in "view" mode
+    private final InventoryView inventoryView;
+    private final Timer availabilityTimer;
+    private final Timer persistTimer;
+
+    // "reserve": hold stock in Product Service while the order is created, "check": availability check only,
+    // "view": availability check against the local InventoryView, Product Service only while the view can't answer,
+    // "saga": no call at all, orders are saved PENDING and confirmed or rejected by Product Service (OrderConfirmationService)
+    @Value("${order.availability.mode:reserve}")
+    private String availabilityMode;
+
+    // What to do with lines that can't be fully filled, when the request doesn't say: reject, drop_line or partial
+    @Value("${order.fulfilment.policy:drop_line}")
+    private String defaultPolicy;
+
+    // Orders saved per transaction by placeOrders
+    @Value("${order.batch.chunk-size:200}")
+    private int batchChunkSize;
+
+    // A chunk size below 1 would never advance through the batch, refuse to start with it
+    @PostConstruct
+    void checkSettings() {
+        if (batchChunkSize < 1) {
+            throw new IllegalStateException("order.batch.chunk-size must be at least 1, was " + batchChunkSize);
+        }
+    }
+
+    public OrderPlacementService(OrderService orderService, ProductServiceClient productServiceClient,
+                                 ObjectProvider<InventoryView> inventoryView, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.productServiceClient = productServiceClient;
+        this.inventoryView = inventoryView.getIfAvailable();
+        this.availabilityTimer = stageTimer(meterRegistry, "availability");
+        this.persistTimer = stageTimer(meterRegistry, "persist");
+    }
+
+    /**
+     * Latency of one stage of placing an order, all stages share the name so they can be stacked on one dashboard:
+     * availability (Product Service HTTP call), persist (order transaction), outbox_enqueue (inside persist,
+     * see OrderService), publish_ack (outbox row written until the broker acked the event, see OutboxRelay)
+     * and, in saga mode, confirmation (order saved until Product Service's reply was applied).
+     */
+    public static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("orders.create.stage.time")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Items that can be ordered (quantities may be reduced under PARTIAL), plus the reservation holding their stock
+    // (null in "check", "view" and "saga" mode)
+    public record Availability(List<OrderItemDto> availableItems, String reservationId, FulfilmentPolicy policy) {
+
+        public String rejectionMessage() {
+            return policy == FulfilmentPolicy.REJECT
+                    ? "Not enough stock to fulfil the whole order."
+                    : "No items available for the order.";
+        }
+    }
+
+    // Product Service's answer for a list of items, indexed by SKU
+    private record StockLookup(AvailabilityIndex index, String reservationId) {
+    }
+
+    public FulfilmentPolicy defaultPolicy() {
+        return FulfilmentPolicy.from(defaultPolicy);
+    }
+
+    public Availability checkAvailability(OrderDto orderDto) {
+        return checkAvailability(orderDto, defaultPolicy());
+    }
+
+    /**
+     * Reserves stock for the items (or, in "check" mode, only checks availability) and fills the
+     * order lines under the policy.
+     * A reservation holds the stock until product-service consumes the order_placed event,
+     * so concurrent orders can't all be accepted for the same last unit. Only PARTIAL asks for
+     * partial holds, and whatever was held for lines the policy dropped is released right away.
+     * In "saga" mode nothing is checked: all items are kept and the policy is always all-or-nothing.
+     */
+    public Availability checkAvailability(OrderDto orderDto, FulfilmentPolicy policy) {
+        if (awaitsConfirmation()) {
+            // Product Service decides later, for the whole order
+            return new Availability(orderDto.getOrderItems(), null, FulfilmentPolicy.REJECT);
+        }
+        return availabilityTimer.record(() -> {
+            // REJECT and DROP_LINE only use lines in full, a partial hold would sit unused until it expires
+            StockLookup lookup = lookupStock(orderDto.getOrderItems(), policy == FulfilmentPolicy.PARTIAL);
+            List<OrderItemDto> availableItems = lookup.index().fill(orderDto.getOrderItems(), policy);
+
+            Availability availability = new Availability(availableItems, lookup.reservationId(), policy);
+            if (lookup.reservationId() == null) {
+                return availability;
+            }
+            if (availableItems.isEmpty()) {
+                // Some SKUs were held but the order won't be placed
+                releaseReservation(availability);
+                return new Availability(availableItems, null, policy);
+            }
+            // Held for lines the policy dropped
+            Map<String, Integer> unused = lookup.index().remaining();
+            if (!unused.isEmpty()) {
+                productServiceClient.releaseReservation(lookup.reservationId(), unused);
+            }
+            return availability;
+        });
+    }
+
+    private StockLookup lookupStock(List<OrderItemDto> items, boolean partialHolds) {
+        if (RESERVE_MODE.equals(availabilityMode)) {
+            ReservationResponse reservation = productServiceClient.reserveProducts(items, partialHolds);
+            return new StockLookup(AvailabilityIndex.of(reservation.getProductAvailabilityList()),
+                    reservation.getReservationId());
+        }
+        if (VIEW_MODE.equals(availabilityMode) && inventoryView != null) {
+            List<ProductAvailability> fromView = inventoryView.checkAvailability(items).orElse(null);
+            if (fromView != null) {
+                return new StockLookup(AvailabilityIndex.of(fromView), null);
+            }
+        }
+        return new StockLookup(AvailabilityIndex.of(productServiceClient.checkProductAvailability(items)), null);
+    }
+
+    /**
+     * Saves the order with its available items. The 'placed' event is written to the outbox
+     * in the same transaction and relayed to Kafka by OutboxRelay.
+     * If saving fails the reservation is released right away instead of waiting for it to expire.
+     */
+    public OrderResponse placeOrder(OrderDto orderDto, Availability availability) {
+        orderDto.setOrderItems(availability.availableItems());
+        orderDto.setReservationId(availability.reservationId());
+        try {
+            return persistTimer.record(() -> orderService.createOrder(orderDto, initialStatus()));
+        } catch (RuntimeException e) {
+            releaseReservation(availability);
+            throw e;
+        }
+    }
+
+    /**
+     * Places a batch of orders with one availability call for all of them.
+     *
+     * Quantities are summed per SKU across the batch and as much of each as is free is reserved.
+     * The stock is then handed out to the orders in request order under the policy, and orders
+     * left with no items are rejected.
+     * The rest are saved in chunks of order.batch.chunk-size, one transaction per chunk;
+     * a failed chunk fails only its own orders.
+     * The orders share the reservation, product-service releases each order's own lines when it consumes
+     * the order's event. Stock held but not handed out, and the lines of failed orders, are released here.
+     *
+     * @return One result per order, in request order.
+     */
+    public List<OrderBatchResult> placeOrders(List<OrderDto> orderDtos, FulfilmentPolicy policy) {
+        if (awaitsConfirmation()) {
+            return placePendingOrders(orderDtos);
+        }
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        orderDtos.forEach(orderDto -> orderDto.getOrderItems()
+                .forEach(item -> totals.merge(item.getSkuCode(), item.getQuantity(), Integer::sum)));
+        List<OrderItemDto> combined = totals.entrySet().stream()
+                .map(entry -> OrderItemDto.builder().skuCode(entry.getKey()).quantity(entry.getValue()).build())
+                .collect(Collectors.toList());
+
+        // Partial holds whatever the policy: lines of several orders share each SKU's total, so part of it
+        // can still fill whole lines or whole orders. What isn't handed out is released below.
+        StockLookup lookup = availabilityTimer.record(() -> lookupStock(combined, true));
+        Availability availability = new Availability(combined, lookup.reservationId(), policy);
+
+        OrderBatchResult[] results = new OrderBatchResult[orderDtos.size()];
+        List<Integer> accepted = new ArrayList<>(orderDtos.size());
+        for (int i = 0; i < orderDtos.size(); i++) {
+            OrderDto orderDto = orderDtos.get(i);
+            orderDto.setOrderItems(lookup.index().fill(orderDto.getOrderItems(), policy));
+            if (orderDto.getOrderItems().isEmpty()) {
+                results[i] = result(i, null, "REJECTED", availability.rejectionMessage());
+            } else {
+                // Every order carries the batch reservation, product-service releases only that order's lines
+                orderDto.setReservationId(availability.reservationId());
+                accepted.add(i);
+            }
+        }
+
+        int placed = 0;
+        Map<String, Integer> unused = lookup.index().remaining();
+        for (int from = 0; from < accepted.size(); from += batchChunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + batchChunkSize, accepted.size()));
+            try {
+                List<OrderResponse> responses = orderService.createOrders(chunk.stream().map(orderDtos::get).toList());
+                for (int j = 0; j < chunk.size(); j++) {
+                    results[chunk.get(j)] = result(chunk.get(j), responses.get(j).getOrderId(), "ORDER_PLACED", null);
+                }
+                placed += chunk.size();
+            } catch (RuntimeException e) {
+                log.error("Error while saving {} orders of a batch", chunk.size(), e);
+                chunk.forEach(index -> {
+                    results[index] = result(index, null, "FAILED", "Unable to create order");
+                    orderDtos.get(index).getOrderItems()
+                            .forEach(item -> unused.merge(item.getSkuCode(), item.getQuantity(), Integer::sum));
+                });
+            }
+        }
+
+        if (placed == 0) {
+            releaseReservation(availability);
+        } else if (availability.reservationId() != null && !unused.isEmpty()) {
+            productServiceClient.releaseReservation(availability.reservationId(), unused);
+        }
+        return List.of(results);
+    }
+
+    // Saga mode: every order is saved PENDING, Product Service confirms or rejects each one on its own
+    private List<OrderBatchResult> placePendingOrders(List<OrderDto> orderDtos) {
+        List<OrderBatchResult> results = new ArrayList<>(orderDtos.size());
+        for (int from = 0; from < orderDtos.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, orderDtos.size());
+            try {
+                List<OrderResponse> responses = orderService.createOrders(orderDtos.subList(from, to), OrderStatus.PENDING);
+                for (int i = from; i < to; i++) {
+                    results.add(result(i, responses.get(i - from).getOrderId(), OrderStatus.PENDING.name(), null));
+                }
+            } catch (RuntimeException e) {
+                log.error("Error while saving {} orders of a batch", to - from, e);
+                for (int i = from; i < to; i++) {
+                    results.add(result(i, null, "FAILED", "Unable to create order"));
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean awaitsConfirmation() {
+        return SAGA_MODE.equals(availabilityMode);
+    }
+
+    private OrderStatus initialStatus() {
+        return awaitsConfirmation() ? OrderStatus.PENDING : OrderStatus.ORDER_PLACED;
+    }
+
+    public void releaseReservation(Availability availability) {
+        if (availability.reservationId() != null) {
+            productServiceClient.releaseReservation(availability.reservationId());
+        }
+    }
+
+    private static OrderBatchResult result(int index, Long orderId, String status, String message) {
+        return OrderBatchResult.builder()
+                .index(index)
+                .orderId(orderId)
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
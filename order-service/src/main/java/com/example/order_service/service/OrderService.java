@@ -2,12 +2,13 @@ package com.example.order_service.service;
 
 import com.example.order_service.dto.OrderDto;
 import com.example.order_service.dto.OrderResponse;
-import com.example.order_service.dto.ProductAvailability;
+import com.example.order_service.dto.OrderStatusResponse;
 import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderPage;
+import com.example.order_service.dto.OrderSummary;
 import com.example.order_service.entity.Order;
 import com.example.order_service.entity.OrderItem;
 import com.example.order_service.entity.OrderStatus;
-import com.example.order_service.kafka.OrderProducer;
 import com.example.order_service.repository.OrderRepository;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -15,7 +16,11 @@ import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,24 +30,30 @@ public class OrderService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private OrderProducer orderProducer;
+    private OutboxService outboxService;
 
     @Autowired
     private MeterRegistry meterRegistry;
 
     @Transactional
     public OrderResponse createOrder(OrderDto orderDto) {
+        return createOrder(orderDto, OrderStatus.ORDER_PLACED);
+    }
+
+    /**
+     * @param status ORDER_PLACED, or PENDING for an order that waits for Product Service to
+     *               confirm its stock (its event then asks for a reply, see OrderConfirmationService).
+     */
+    @Transactional
+    public OrderResponse createOrder(OrderDto orderDto, OrderStatus status) {
 
         Timer.Sample sample = Timer.start(meterRegistry);
 
         // Convert incoming OrderDto (request) into Order entity (DB object)
         Order order = convertToEntity(orderDto);
-
-        // ✅ Order placed counter
-        meterRegistry.counter("orders.placed.count").increment();
-
-        // ✅ Order creation time
-        sample.stop(meterRegistry.timer("orders.creation.time"));
+        if (order.getOrderDate() == null) {
+            order.setOrderDate(LocalDateTime.now());
+        }
 
         // Create a final reference so it can be used inside lambda expression
         Order finalOrder = order;
@@ -77,16 +88,30 @@ public class OrderService {
         order.setOrderItems(orderItemList);
 
         // Set initial order status
-        order.setOrderStatus(OrderStatus.ORDER_PLACED.name());
+        order.setOrderStatus(status.name());
+        order.setCreatedAt(Instant.now());
 
         // Persist Order and OrderItems in DB
         // Because of cascading, OrderItems are saved automatically
         order = orderRepository.save(order);
 
+        // Queue the 'placed' event in the same transaction as the order,
+        // OutboxRelay publishes it to Kafka once committed
+        orderDto.setId(order.getId());
+        Timer.Sample enqueueSample = Timer.start(meterRegistry);
+        outboxService.enqueue(orderDto, eventType(status));
+        enqueueSample.stop(OrderPlacementService.stageTimer(meterRegistry, "outbox_enqueue"));
+
+        // ✅ Order placed counter
+        meterRegistry.counter("orders.placed.count").increment();
+
+        // ✅ Order creation time (entity mapping, inserts and outbox row; the commit is in the 'persist' stage)
+        sample.stop(meterRegistry.timer("orders.creation.time"));
+
         // Build and return response object
         return OrderResponse.builder()
                 .orderId(order.getId())
-                .status("ORDER PLACED")
+                .status(responseStatus(status))
                 .build();
     }
 
@@ -148,16 +173,129 @@ public class OrderService {
     }*/
 
 
+    /**
+     * Saves several orders and their 'placed' events in one transaction (POST /create/batch).
+     * Orders and outbox rows are saved with saveAll so Hibernate can send the inserts
+     * as JDBC batches (hibernate.jdbc.batch_size).
+     */
+    @Transactional
+    public List<OrderResponse> createOrders(List<OrderDto> orderDtos) {
+        return createOrders(orderDtos, OrderStatus.ORDER_PLACED);
+    }
+
+    @Transactional
+    public List<OrderResponse> createOrders(List<OrderDto> orderDtos, OrderStatus status) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Instant createdAt = Instant.now();
+
+        List<Order> orders = new ArrayList<>(orderDtos.size());
+        for (OrderDto orderDto : orderDtos) {
+            Order order = Order.builder()
+                    .totalPrice(orderDto.getTotalPrice())
+                    .orderDate(orderDto.getOrderDate() != null ? orderDto.getOrderDate() : LocalDateTime.now())
+                    .orderStatus(status.name())
+                    .createdAt(createdAt)
+                    .build();
+            order.setOrderItems(orderDto.getOrderItems().stream()
+                    .map(itemDto -> {
+                        OrderItem orderItem = convertToEntity(itemDto);
+                        orderItem.setOrder(order);
+                        return orderItem;
+                    })
+                    .collect(Collectors.toList()));
+            orders.add(order);
+        }
+        orders = orderRepository.saveAll(orders);
+
+        for (int i = 0; i < orders.size(); i++) {
+            orderDtos.get(i).setId(orders.get(i).getId());
+        }
+        outboxService.enqueueAll(orderDtos, eventType(status));
+
+        meterRegistry.counter("orders.placed.count").increment(orders.size());
+        sample.stop(meterRegistry.timer("orders.batch.creation.time"));
+
+        return orders.stream()
+                .map(order -> OrderResponse.builder()
+                        .orderId(order.getId())
+                        .status(responseStatus(status))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    // A pending order's event asks Product Service to confirm or reject the whole order
+    private static String eventType(OrderStatus status) {
+        return status == OrderStatus.PENDING ? "pending" : "placed";
+    }
+
+    private static String responseStatus(OrderStatus status) {
+        return status == OrderStatus.PENDING ? OrderStatus.PENDING.name() : "ORDER PLACED";
+    }
+
+    public Optional<OrderDto> getOrder(Long orderId) {
+        return orderRepository.findWithItemsById(orderId).map(this::convertToDto);
+    }
+
+    /**
+     * Lists orders oldest first, one keyset page at a time.
+     *
+     * @param after Cursor from the previous page (nextCursor), null for the first page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public OrderPage listOrders(String status, LocalDateTime from, String after, int limit) {
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (after != null) {
+            // Cursor is "<orderDate>_<id>" of the last row of the previous page
+            int separator = after.lastIndexOf('_');
+            try {
+                afterDate = LocalDateTime.parse(after.substring(0, separator));
+                afterId = Long.valueOf(after.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+        }
+
+        List<OrderSummary> orders = orderRepository.findSummaries(status, from, afterDate, afterId, limit);
+        String nextCursor = null;
+        if (orders.size() == limit) {
+            OrderSummary last = orders.get(orders.size() - 1);
+            nextCursor = last.getOrderDate() + "_" + last.getId();
+        }
+        return new OrderPage(orders, nextCursor);
+    }
+
+    public Optional<OrderStatusResponse> getOrderStatus(Long orderId) {
+        return orderRepository.findById(orderId)
+                .map(order -> OrderStatusResponse.builder()
+                        .orderId(order.getId())
+                        .status(order.getOrderStatus())
+                        .build());
+    }
+
     @Transactional
     public OrderResponse cancelOrder(Long orderId) {
-        // STEP 1: Find order by ID
-        Order order = orderRepository.findById(orderId)
+        // STEP 1: Find order by ID (items are needed for the event, load them in the same select)
+        Order order = orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
 
-        // STEP 2: Update order status
-        if(!order.getOrderStatus().equals("ORDER_CANCELLED")){
-            order.setOrderStatus("Order Cancelled");
-            orderRepository.save(order);
+        // Already cancelled, or rejected (no stock held): nothing to hand back, don't send the event again
+        String status = order.getOrderStatus();
+        if (!OrderStatus.isCancellable(status)) {
+            return new OrderResponse(order);
+        }
+
+        // STEP 2: Update order status, only if it is still the one read above,
+        // so repeated or concurrent cancels send the event once
+        if (orderRepository.updateStatus(orderId, status, OrderStatus.ORDER_CANCELLED.name()) == 0) {
+            // Changed meanwhile (cancelled, or a saga reply came in), decide again on the new status
+            return cancelOrder(orderId);
+        }
+        order.setOrderStatus(OrderStatus.ORDER_CANCELLED.name());
+
+        // The stock of a pending saga order is handed back once Product Service replies (OrderConfirmationService)
+        if (OrderStatus.PENDING.name().equals(status)) {
+            return new OrderResponse(order);
         }
 
         // STEP 3: Prepare OrderDto
@@ -177,9 +315,9 @@ public class OrderService {
         );
 
 
-        // STEP 4: 🔥 KAFKA PRODUCER CALLED HERE!
-        // ✅ THIS IS WHERE KAFKA PRODUCER IS CALLED
-        orderProducer.sendOrderEvent(orderDto, "cancelled");
+        // STEP 4: Queue the 'cancelled' event in the same transaction,
+        // OutboxRelay publishes it to Kafka once committed
+        outboxService.enqueue(orderDto, "cancelled");
 
         return new OrderResponse(order);
     }
@@ -214,9 +352,4 @@ public class OrderService {
         return orderDto;
     }
 
-    public boolean isProductAvailable(String skuCode, List<ProductAvailability> availabilityList) {
-        return availabilityList.stream()
-                .anyMatch(availability -> availability.getSkuCode().equals(skuCode) && availability.isAvailable());
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.OrderResponse;
+import com.example.order_service.dto.OrderStatusResponse;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.exception.OrderPipelineSaturatedException;
+import com.example.order_service.exception.ProductServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process pipeline behind POST /create/async.
+ *
+ * A submission is validated and admitted right away (or rejected when the pipeline is full),
+ * then runs through two stages on their own executors:
+ * availability (reserve / check with Product Service) and persist (order + outbox row in one transaction).
+ * Publishing is the outbox relay's job, so it stays transactional with the order and isn't a stage here.
+ * The outcome is kept per handle for GET /orders/{id}/status.
+ */
+@Slf4j
+@Service
+public class OrderSubmissionPipeline {
+
+    public static final String ACCEPTED = "ACCEPTED";
+    public static final String CHECKING_AVAILABILITY = "CHECKING_AVAILABILITY";
+    public static final String PERSISTING = "PERSISTING";
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    private record Submission(OrderStatusResponse status, boolean finished, long updatedAtMillis) {
+    }
+
+    private final OrderPlacementService orderPlacementService;
+    private final MeterRegistry meterRegistry;
+
+    // Caps submissions in flight across both stages
+    private final int capacity;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor availabilityExecutor;
+    private final ThreadPoolExecutor persistExecutor;
+    private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+
+    private final Timer availabilityTimer;
+    private final Timer persistTimer;
+    private final Timer totalTimer;
+    private final Counter rejectedCounter;
+
+    @Value("${order.async.status-retention-ms:600000}")
+    private long statusRetentionMs;
+
+    public OrderSubmissionPipeline(OrderPlacementService orderPlacementService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${order.async.capacity:1000}") int capacity,
+                                   @Value("${order.async.availability-threads:32}") int availabilityThreads,
+                                   @Value("${order.async.persist-threads:16}") int persistThreads) {
+        this.orderPlacementService = orderPlacementService;
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.availabilityExecutor = stageExecutor(availabilityThreads, capacity);
+        this.persistExecutor = stageExecutor(persistThreads, capacity);
+
+        this.availabilityTimer = stageTimer("availability");
+        this.persistTimer = stageTimer("persist");
+        this.totalTimer = meterRegistry.timer("orders.async.total.time");
+        this.rejectedCounter = meterRegistry.counter("orders.async.rejected");
+
+        Gauge.builder("orders.async.in.flight", permits, p -> capacity - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("orders.async.queue.depth", availabilityExecutor, executor -> executor.getQueue().size())
+                .tag("stage", "availability")
+                .register(meterRegistry);
+        Gauge.builder("orders.async.queue.depth", persistExecutor, executor -> executor.getQueue().size())
+                .tag("stage", "persist")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Validates and admits an order.
+     *
+     * @return Status with the handle to poll.
+     * @throws IllegalArgumentException if the order has no valid items.
+     * @throws OrderPipelineSaturatedException if the pipeline is full.
+     */
+    public OrderStatusResponse submit(OrderDto orderDto) {
+        validate(orderDto);
+        if (!permits.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new OrderPipelineSaturatedException("Order pipeline is full (" + capacity + " in flight)");
+        }
+
+        String handle = UUID.randomUUID().toString();
+        OrderStatusResponse accepted = status(handle, null, ACCEPTED, null);
+        update(accepted, false);
+        Timer.Sample total = Timer.start(meterRegistry);
+
+        CompletableFuture
+                .supplyAsync(() -> {
+                    update(status(handle, null, CHECKING_AVAILABILITY, null), false);
+                    return timed(availabilityTimer, () -> orderPlacementService.checkAvailability(orderDto));
+                }, availabilityExecutor)
+                .thenApplyAsync(availability -> {
+                    if (availability.availableItems().isEmpty()) {
+                        return status(handle, null, REJECTED, availability.rejectionMessage());
+                    }
+                    update(status(handle, null, PERSISTING, null), false);
+                    OrderResponse order = timed(persistTimer, () -> orderPlacementService.placeOrder(orderDto, availability));
+                    // PENDING in saga mode, the order's own status then follows Product Service's reply
+                    return status(handle, order.getOrderId(),
+                            OrderStatus.PENDING.name().equals(order.getStatus()) ? order.getStatus() : ORDER_PLACED, null);
+                }, persistExecutor)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof ProductServiceUnavailableException) {
+                        return status(handle, null, FAILED, "Product service unavailable, please retry");
+                    }
+                    log.error("Error while creating order {}", handle, cause);
+                    return status(handle, null, FAILED, "Unable to create order");
+                })
+                .whenComplete((finalStatus, ex) -> {
+                    update(finalStatus, true);
+                    permits.release();
+                    total.stop(totalTimer);
+                });
+
+        return accepted;
+    }
+
+    public Optional<OrderStatusResponse> getStatus(String handle) {
+        return Optional.ofNullable(submissions.get(handle)).map(Submission::status);
+    }
+
+    // Forget finished submissions after the retention period
+    @Scheduled(fixedDelayString = "${order.async.status-purge-interval-ms:60000}")
+    public void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - statusRetentionMs;
+        submissions.values().removeIf(submission -> submission.finished() && submission.updatedAtMillis() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        availabilityExecutor.shutdown();
+        persistExecutor.shutdown();
+    }
+
+    private void validate(OrderDto orderDto) {
+        if (orderDto.getOrderItems() == null || orderDto.getOrderItems().isEmpty()) {
+            throw new IllegalArgumentException("Order has no items");
+        }
+        for (OrderItemDto item : orderDto.getOrderItems()) {
+            if (item.getSkuCode() == null || item.getSkuCode().isBlank() || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a skuCode and a positive quantity");
+            }
+        }
+    }
+
+    private void update(OrderStatusResponse status, boolean finished) {
+        submissions.put(status.getHandle(), new Submission(status, finished, System.currentTimeMillis()));
+    }
+
+    private static OrderStatusResponse status(String handle, Long orderId, String status, String message) {
+        return OrderStatusResponse.builder()
+                .handle(handle)
+                .orderId(orderId)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    private static <T> T timed(Timer timer, Supplier<T> stage) {
+        long start = System.nanoTime();
+        try {
+            return stage.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("orders.async.stage.time")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static ThreadPoolExecutor stageExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity));
+    }
+}
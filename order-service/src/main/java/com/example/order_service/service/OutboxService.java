@@ -0,0 +1,64 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderDto;
+import com.example.order_service.entity.OutboxEvent;
+import com.example.order_service.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper kafkaObjectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper kafkaObjectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaObjectMapper = kafkaObjectMapper;
+    }
+
+    /**
+     * Stores an order event in the outbox. Joins the caller's transaction,
+     * so the event is committed (or rolled back) together with the order itself.
+     * OutboxRelay publishes it to Kafka afterwards.
+     *
+     * @param orderDto The details of the order.
+     * @param eventType Type of event, "placed", "pending" or "cancelled".
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(OrderDto orderDto, String eventType) {
+        outboxEventRepository.save(toEvent(orderDto, eventType));
+    }
+
+    /**
+     * Stores the events of several orders in the caller's transaction, saved together
+     * so the inserts can go out as JDBC batches.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueueAll(List<OrderDto> orderDtos, String eventType) {
+        outboxEventRepository.saveAll(orderDtos.stream()
+                .map(orderDto -> toEvent(orderDto, eventType))
+                .toList());
+    }
+
+    private OutboxEvent toEvent(OrderDto orderDto, String eventType) {
+        String payload;
+        try {
+            payload = kafkaObjectMapper.writeValueAsString(orderDto);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize '" + eventType + "' event for order ID: " + orderDto.getId(), e);
+        }
+
+        return OutboxEvent.builder()
+                .orderId(orderDto.getId())
+                .eventType(eventType)
+                .payload(payload)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.order_service.client;
+
+import com.example.order_service.config.ProductClientResilienceConfig;
+import com.example.order_service.config.RestTemplateConfig;
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.ProductAvailability;
+import com.example.order_service.exception.ProductServiceUnavailableException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs ProductServiceClient against a local stub of the /availability endpoint
+ * to check connection reuse, timeouts and the circuit-breaker fallback under concurrent load
+ * (and that reservations fail fast instead).
+ */
+@SpringJUnitConfig(ProductServiceClientTest.TestConfig.class)
+class ProductServiceClientTest {
+
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 4;
+    private static final long RESPONSE_TIMEOUT_MS = 300;
+
+    private static final String AVAILABILITY_JSON =
+            "{\"productAvailabilityList\":[{\"skuCode\":\"sku-1\",\"available\":true}]}";
+
+    // Remote ports of the TCP connections the stub has served, one per pooled connection
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private static volatile long responseDelayMs;
+    private static final HttpServer stubServer = startStubServer();
+
+    @Autowired
+    private ProductServiceClient productServiceClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CircuitBreaker productServiceCircuitBreaker;
+
+    @DynamicPropertySource
+    static void clientProperties(DynamicPropertyRegistry registry) {
+        registry.add("product.service.url",
+                () -> "http://localhost:" + stubServer.getAddress().getPort() + "/api/products");
+        registry.add("product.service.http.max-connections-per-route", () -> MAX_CONNECTIONS_PER_ROUTE);
+        registry.add("product.service.http.response-timeout-ms", () -> RESPONSE_TIMEOUT_MS);
+        registry.add("product.service.http.read-timeout-ms", () -> RESPONSE_TIMEOUT_MS);
+        registry.add("product.service.http.connection-request-timeout-ms", () -> 5000);
+        registry.add("product.service.circuit.minimum-calls", () -> 5);
+        registry.add("product.service.circuit.open-state-wait-ms", () -> 60_000);
+    }
+
+    @AfterEach
+    void resetStub() {
+        responseDelayMs = 0;
+        clientPorts.clear();
+        productServiceCircuitBreaker.reset();
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        stubServer.stop(0);
+    }
+
+    @Test
+    void concurrentCallsReusePooledConnections() throws Exception {
+        int threads = 16;
+        int callsPerThread = 25;
+        long okCallsBefore = okCalls();
+
+        List<List<ProductAvailability>> results = runConcurrently(threads, callsPerThread);
+
+        assertEquals(threads * callsPerThread, results.size());
+        results.forEach(result -> assertEquals(1, result.size()));
+        // 400 calls from 16 threads served over no more connections than the per-route limit
+        assertTrue(clientPorts.size() <= MAX_CONNECTIONS_PER_ROUTE,
+                "expected at most " + MAX_CONNECTIONS_PER_ROUTE + " connections but saw " + clientPorts.size());
+        assertNotNull(meterRegistry.find("httpcomponents.httpclient.pool.total.connections").gauge());
+        assertEquals(threads * callsPerThread, okCalls() - okCallsBefore);
+    }
+
+    @Test
+    void slowProductServiceIsCutOffByResponseTimeout() {
+        responseDelayMs = 2_000;
+        List<OrderItemDto> unseenItems = List.of(OrderItemDto.builder().skuCode("sku-unseen").quantity(1).build());
+
+        long start = System.nanoTime();
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> runConcurrently(MAX_CONNECTIONS_PER_ROUTE, 1, unseenItems));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The calls gave up at the response timeout instead of waiting for the stub,
+        // and with nothing cached for the SKU the client failed instead of answering "unavailable"
+        assertInstanceOf(ProductServiceUnavailableException.class, failure.getCause());
+        assertTrue(elapsedMs < responseDelayMs, "calls took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void openCircuitFailsFastAndServesRecentAvailability() throws Exception {
+        // Prime the last-known availability with a healthy call
+        List<List<ProductAvailability>> primed = runConcurrently(1, 1);
+        assertEquals(1, primed.get(0).size());
+
+        productServiceCircuitBreaker.transitionToOpenState();
+        responseDelayMs = 2_000;
+        double fallbackHitsBefore = fallbackHits();
+
+        long start = System.nanoTime();
+        List<List<ProductAvailability>> results = runConcurrently(8, 10);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Answered from the cache without touching the stub
+        results.forEach(result -> assertTrue(result.get(0).isAvailable()));
+        assertTrue(clientPorts.size() <= 1);
+        assertTrue(elapsedMs < RESPONSE_TIMEOUT_MS, "fallback took " + elapsedMs + " ms");
+        assertEquals(80, fallbackHits() - fallbackHitsBefore);
+    }
+
+    @Test
+    void openCircuitFailsReservationsEvenWithRecentAvailability() throws Exception {
+        runConcurrently(1, 1);
+        productServiceCircuitBreaker.transitionToOpenState();
+        double fallbackHitsBefore = fallbackHits();
+
+        // Accepting the order from the cache without a hold could oversell it
+        assertThrows(ProductServiceUnavailableException.class, () -> productServiceClient.reserveProducts(
+                List.of(OrderItemDto.builder().skuCode("sku-1").quantity(1).build()), false));
+        assertEquals(0, fallbackHits() - fallbackHitsBefore);
+    }
+
+    private long okCalls() {
+        return meterRegistry.find("product.service.client.requests").tag("status", "200").timers().stream()
+                .mapToLong(timer -> timer.count())
+                .sum();
+    }
+
+    private double fallbackHits() {
+        return meterRegistry.find("product.service.fallback").tag("result", "hit").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private List<List<ProductAvailability>> runConcurrently(int threads, int callsPerThread) throws Exception {
+        return runConcurrently(threads, callsPerThread,
+                List.of(OrderItemDto.builder().skuCode("sku-1").quantity(1).build()));
+    }
+
+    private List<List<ProductAvailability>> runConcurrently(int threads, int callsPerThread,
+                                                            List<OrderItemDto> items) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<List<ProductAvailability>>>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                List<List<ProductAvailability>> responses = new ArrayList<>();
+                for (int i = 0; i < callsPerThread; i++) {
+                    responses.add(productServiceClient.checkProductAvailability(items));
+                }
+                return responses;
+            }));
+        }
+        start.countDown();
+
+        List<List<ProductAvailability>> results = new ArrayList<>();
+        for (Future<List<List<ProductAvailability>>> worker : workers) {
+            results.addAll(worker.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return results;
+    }
+
+    private static HttpServer startStubServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/api/products/availability", exchange -> {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    Thread.sleep(responseDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = AVAILABILITY_JSON.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                try (OutputStream out = exchange.getResponseBody()) {
+                    exchange.sendResponseHeaders(200, body.length);
+                    out.write(body);
+                } catch (IOException e) {
+                    // client already gave up on a delayed response
+                }
+            });
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start stub Product Service", e);
+        }
+    }
+
+    @Configuration
+    @Import({RestTemplateConfig.class, ProductClientResilienceConfig.class,
+            AvailabilityCache.class, ProductServiceClient.class})
+    static class TestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
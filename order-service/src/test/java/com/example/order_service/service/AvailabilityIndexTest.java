@@ -0,0 +1,67 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderItemDto;
+import com.example.order_service.dto.ProductAvailability;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+
+    private static final List<ProductAvailability> STOCK = List.of(
+            new ProductAvailability("SKU-1", true, 5),
+            new ProductAvailability("SKU-2", false, 2),
+            new ProductAvailability("SKU-3", false, 0));
+
+    private static final List<OrderItemDto> ITEMS = List.of(item("SKU-1", 3), item("SKU-2", 4), item("SKU-1", 3), item("SKU-3", 1));
+
+    @Test
+    void rejectPlacesNothingUnlessEveryLineFits() {
+        AvailabilityIndex index = AvailabilityIndex.of(STOCK);
+
+        assertTrue(index.fill(ITEMS, FulfilmentPolicy.REJECT).isEmpty());
+        // The rejected order took nothing
+        assertEquals(List.of(item("SKU-1", 5)), index.fill(List.of(item("SKU-1", 5)), FulfilmentPolicy.REJECT));
+    }
+
+    @Test
+    void dropLineKeepsOnlyLinesThatFitCompletely() {
+        List<OrderItemDto> filled = AvailabilityIndex.of(STOCK).fill(ITEMS, FulfilmentPolicy.DROP_LINE);
+
+        // The second SKU-1 line only has 2 of 3 left
+        assertEquals(List.of(item("SKU-1", 3)), filled);
+    }
+
+    @Test
+    void partialFillsLinesWithWhatIsLeft() {
+        List<OrderItemDto> filled = AvailabilityIndex.of(STOCK).fill(ITEMS, FulfilmentPolicy.PARTIAL);
+
+        assertEquals(List.of(item("SKU-1", 3), item("SKU-2", 2), item("SKU-1", 2)), filled);
+        assertEquals(4, ITEMS.get(1).getQuantity());
+    }
+
+    @Test
+    void responsesWithoutQuantitiesAreUnavailable() {
+        AvailabilityIndex index = AvailabilityIndex.of(List.of(
+                new ProductAvailability("SKU-1", true, null),
+                new ProductAvailability("SKU-2", true, 3)));
+
+        assertEquals(List.of(item("SKU-2", 1)), index.fill(List.of(item("SKU-1", 3), item("SKU-2", 1)), FulfilmentPolicy.PARTIAL));
+    }
+
+    @Test
+    void remainingListsWhatNoLineTook() {
+        AvailabilityIndex index = AvailabilityIndex.of(STOCK);
+        index.fill(ITEMS, FulfilmentPolicy.DROP_LINE);
+
+        assertEquals(Map.of("SKU-1", 2, "SKU-2", 2), index.remaining());
+    }
+
+    private static OrderItemDto item(String skuCode, int quantity) {
+        return OrderItemDto.builder().skuCode(skuCode).quantity(quantity).build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.order_service.service;
+
+import com.example.order_service.dto.OrderCancelBatchRequest;
+import com.example.order_service.dto.OrderCancelBatchResponse;
+import com.example.order_service.entity.Order;
+import com.example.order_service.entity.OrderItem;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Small chunks and limit, so a few orders already span several transactions
+@SpringBootTest(properties = {
+        "order.cancel.batch.chunk-size=2",
+        "order.cancel.batch.max-orders=5"
+})
+@ActiveProfiles("test")
+class OrderCancellationServiceTest {
+
+    // Each test places its orders on days of their own, so filters only match them
+    private static final AtomicInteger DAYS = new AtomicInteger();
+
+    @Autowired
+    private OrderCancellationService orderCancellationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cancelsOnlyCancellableOrdersAcrossChunks() {
+        LocalDateTime day = nextDay();
+        Long placed = saveOrder(OrderStatus.ORDER_PLACED.name(), day);
+        Long confirmed = saveOrder(OrderStatus.CONFIRMED.name(), day);
+        Long pending = saveOrder(OrderStatus.PENDING.name(), day);
+        Long rejected = saveOrder(OrderStatus.REJECTED.name(), day);
+        Long cancelled = saveOrder(OrderStatus.ORDER_CANCELLED.name(), day);
+        Long legacyCancelled = saveOrder("Order Cancelled", day);
+
+        OrderCancelBatchResponse response = orderCancellationService.cancelOrders(OrderCancelBatchRequest.builder()
+                .orderIds(List.of(placed, confirmed, pending, rejected, cancelled, legacyCancelled, placed))
+                .build());
+
+        assertEquals(sorted(placed, confirmed, pending), sorted(response.getCancelledOrderIds()));
+        assertFalse(response.isHasMore());
+        assertEquals(OrderStatus.ORDER_CANCELLED.name(), statusOf(pending));
+        assertEquals(OrderStatus.REJECTED.name(), statusOf(rejected));
+        assertEquals("Order Cancelled", statusOf(legacyCancelled));
+        // Pending orders hold no stock yet, so no event for them
+        assertEquals(1, cancelledEvents(placed));
+        assertEquals(1, cancelledEvents(confirmed));
+        assertEquals(0, cancelledEvents(pending));
+    }
+
+    @Test
+    void cancellingAgainChangesNothing() {
+        LocalDateTime day = nextDay();
+        Long first = saveOrder(OrderStatus.ORDER_PLACED.name(), day);
+        Long second = saveOrder(OrderStatus.ORDER_PLACED.name(), day);
+        OrderCancelBatchRequest request = OrderCancelBatchRequest.builder().orderIds(List.of(first, second)).build();
+
+        assertEquals(2, orderCancellationService.cancelOrders(request).getCancelledOrderIds().size());
+        assertTrue(orderCancellationService.cancelOrders(request).getCancelledOrderIds().isEmpty());
+        assertTrue(orderCancellationService.cancelOrders(OrderCancelBatchRequest.builder()
+                .from(day).to(day.plusDays(1)).build()).getCancelledOrderIds().isEmpty());
+
+        assertEquals(1, cancelledEvents(first));
+        assertEquals(1, cancelledEvents(second));
+    }
+
+    @Test
+    void filterStopsAtMaxOrdersAndReportsTheRest() {
+        LocalDateTime day = nextDay();
+        List<Long> orders = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            orders.add(saveOrder(OrderStatus.ORDER_PLACED.name(), day.plusMinutes(i)));
+        }
+        saveOrder(OrderStatus.REJECTED.name(), day);
+        Long confirmed = saveOrder(OrderStatus.CONFIRMED.name(), day);
+        OrderCancelBatchRequest request = OrderCancelBatchRequest.builder()
+                .status(OrderStatus.ORDER_PLACED.name())
+                .from(day)
+                .to(day.plusDays(1))
+                .build();
+
+        OrderCancelBatchResponse first = orderCancellationService.cancelOrders(request);
+        assertEquals(5, first.getCancelledOrderIds().size());
+        assertTrue(first.isHasMore());
+
+        OrderCancelBatchResponse rest = orderCancellationService.cancelOrders(request);
+        assertEquals(2, rest.getCancelledOrderIds().size());
+        assertFalse(rest.isHasMore());
+
+        List<Long> all = new ArrayList<>(first.getCancelledOrderIds());
+        all.addAll(rest.getCancelledOrderIds());
+        assertEquals(sorted(orders), sorted(all));
+        assertEquals(OrderStatus.CONFIRMED.name(), statusOf(confirmed));
+    }
+
+    @Test
+    void singleCancelQueuesItsEventOnce() {
+        LocalDateTime day = nextDay();
+        Long placed = saveOrder(OrderStatus.ORDER_PLACED.name(), day);
+        Long rejected = saveOrder(OrderStatus.REJECTED.name(), day);
+
+        assertEquals(OrderStatus.ORDER_CANCELLED.name(), orderService.cancelOrder(placed).getStatus());
+        assertEquals(OrderStatus.ORDER_CANCELLED.name(), orderService.cancelOrder(placed).getStatus());
+        assertEquals(1, cancelledEvents(placed));
+
+        assertEquals(OrderStatus.REJECTED.name(), orderService.cancelOrder(rejected).getStatus());
+        assertEquals(0, cancelledEvents(rejected));
+    }
+
+    private static LocalDateTime nextDay() {
+        return LocalDateTime.of(2000, 1, 1, 0, 0).plusDays(DAYS.incrementAndGet());
+    }
+
+    private Long saveOrder(String status, LocalDateTime orderDate) {
+        Order order = Order.builder()
+                .totalPrice(BigDecimal.TEN)
+                .orderDate(orderDate)
+                .orderStatus(status)
+                .createdAt(Instant.now())
+                .build();
+        OrderItem item = OrderItem.builder()
+                .productId("SKU-1")
+                .productName("Test product")
+                .quantity(2)
+                .price(BigDecimal.valueOf(5))
+                .order(order)
+                .build();
+        order.setOrderItems(new ArrayList<>(List.of(item)));
+        return orderRepository.save(order).getId();
+    }
+
+    private String statusOf(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getOrderStatus();
+    }
+
+    private int cancelledEvents(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_outbox WHERE order_id = ? AND event_type = ?",
+                Integer.class, orderId, "cancelled");
+    }
+
+    private static List<Long> sorted(Long... ids) {
+        return sorted(List.of(ids));
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        Collections.sort(copy);
+        return copy;
+    }
+}
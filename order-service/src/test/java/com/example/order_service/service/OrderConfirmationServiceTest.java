@@ -0,0 +1,134 @@
+package com.example.order_service.service;
+
+import com.example.order_service.entity.Order;
+import com.example.order_service.entity.OrderItem;
+import com.example.order_service.entity.OrderStatus;
+import com.example.order_service.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The timeout sweep only runs when a test calls it
+@SpringBootTest(properties = {
+        "order.availability.mode=saga",
+        "order.saga.confirmation-timeout-ms=60000",
+        "order.saga.timeout-check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class OrderConfirmationServiceTest {
+
+    @Autowired
+    private OrderConfirmationService orderConfirmationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reservedReplyConfirmsThePendingOrder() {
+        Long orderId = savePendingOrder(Instant.now());
+
+        orderConfirmationService.reserved(orderId);
+        // Redelivered reply
+        orderConfirmationService.reserved(orderId);
+
+        assertEquals(OrderStatus.CONFIRMED.name(), statusOf(orderId));
+        assertEquals(0, cancelledEvents(orderId));
+    }
+
+    @Test
+    void rejectedReplyRejectsThePendingOrder() {
+        Long orderId = savePendingOrder(Instant.now());
+
+        orderConfirmationService.rejected(orderId, List.of("SKU-1"));
+        orderConfirmationService.rejected(orderId, List.of("SKU-1"));
+
+        assertEquals(OrderStatus.REJECTED.name(), statusOf(orderId));
+        assertEquals(0, cancelledEvents(orderId));
+    }
+
+    @Test
+    void lateReplyForAnExpiredOrderHandsTheStockBackOnce() {
+        Long orderId = savePendingOrder(Instant.now().minus(Duration.ofHours(1)));
+        // Stock committed in Product Service but its reply lost: the order times out with nothing to hand back yet
+        orderConfirmationService.rejectExpired();
+        assertEquals(OrderStatus.REJECTED.name(), statusOf(orderId));
+        assertEquals(0, cancelledEvents(orderId));
+
+        // The reply Product Service sent again once it could
+        orderConfirmationService.reserved(orderId);
+        orderConfirmationService.reserved(orderId);
+
+        assertEquals(OrderStatus.REJECTED.name(), statusOf(orderId));
+        assertEquals(1, cancelledEvents(orderId));
+    }
+
+    @Test
+    void lateReplyForACancelledOrderHandsTheStockBackOnce() {
+        Long orderId = savePendingOrder(Instant.now());
+        orderService.cancelOrder(orderId);
+        assertEquals(0, cancelledEvents(orderId));
+
+        orderConfirmationService.reserved(orderId);
+        orderConfirmationService.reserved(orderId);
+
+        assertEquals(OrderStatus.ORDER_CANCELLED.name(), statusOf(orderId));
+        assertEquals(1, cancelledEvents(orderId));
+    }
+
+    @Test
+    void redeliveredReplyAfterCancellingAConfirmedOrderChangesNothing() {
+        Long orderId = savePendingOrder(Instant.now());
+        orderConfirmationService.reserved(orderId);
+        // The cancellation hands the stock back itself
+        orderService.cancelOrder(orderId);
+
+        orderConfirmationService.reserved(orderId);
+
+        assertEquals(OrderStatus.ORDER_CANCELLED.name(), statusOf(orderId));
+        assertEquals(1, cancelledEvents(orderId));
+    }
+
+    private Long savePendingOrder(Instant createdAt) {
+        Order order = Order.builder()
+                .totalPrice(BigDecimal.TEN)
+                .orderDate(LocalDateTime.now())
+                .orderStatus(OrderStatus.PENDING.name())
+                .createdAt(createdAt)
+                .build();
+        OrderItem item = OrderItem.builder()
+                .productId("SKU-1")
+                .productName("Test product")
+                .quantity(2)
+                .price(BigDecimal.valueOf(5))
+                .order(order)
+                .build();
+        order.setOrderItems(new ArrayList<>(List.of(item)));
+        return orderRepository.save(order).getId();
+    }
+
+    private String statusOf(Long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getOrderStatus();
+    }
+
+    private int cancelledEvents(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_outbox WHERE order_id = ? AND event_type = ?",
+                Integer.class, orderId, "cancelled");
+    }
+}
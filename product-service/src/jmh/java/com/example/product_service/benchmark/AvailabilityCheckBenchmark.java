@@ -0,0 +1,82 @@
+package com.example.product_service.benchmark;
+
+import com.example.product_service.ProductServiceApplication;
+import com.example.product_service.dto.ProductAvailabilityRequest;
+import com.example.product_service.dto.ProductAvailabilityResponse;
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductService.checkProductAvailability for one basket, with and without the product cache.
+ * Runs against the "test" profile (in-memory H2, Kafka listeners off), so the uncached numbers
+ * show query and mapping cost rather than network time to PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AvailabilityCheckBenchmark {
+
+    private static final int CATALOG_SIZE = 2000;
+
+    @Param({"1", "10", "100", "1000"})
+    public int basketSize;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private List<ProductAvailabilityRequest> basket;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(ProductServiceApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .properties("product.cache.enabled=" + cacheEnabled, "spring.main.banner-mode=off")
+                .run();
+        productService = context.getBean(ProductService.class);
+
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            productService.createProduct(new ProductDto(null, "Product " + i, null, skuCode(i), 19.99, 1_000));
+        }
+
+        // Spread the basket over the catalog instead of taking the first rows
+        basket = new ArrayList<>(basketSize);
+        int step = CATALOG_SIZE / basketSize;
+        for (int i = 0; i < basketSize; i++) {
+            basket.add(new ProductAvailabilityRequest(skuCode(i * step), 1));
+        }
+        productService.checkProductAvailability(basket);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductAvailabilityResponse checkAvailability() {
+        return productService.checkProductAvailability(basket);
+    }
+
+    private static String skuCode(int i) {
+        return "SKU-" + (100_000 + i);
+    }
+}
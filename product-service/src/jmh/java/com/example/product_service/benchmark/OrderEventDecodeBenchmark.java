@@ -0,0 +1,66 @@
+package com.example.product_service.benchmark;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.kafka.codec.OrderEventCodec;
+import com.example.product_service.kafka.codec.OrderMessageDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// OrderMessageDeserializer on a binary-v1 record against the same order sent as JSON
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderEventDecodeBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int items;
+
+    private final OrderMessageDeserializer deserializer = new OrderMessageDeserializer();
+    private final Headers binaryHeaders = new RecordHeaders()
+            .add(OrderEventCodec.FORMAT_HEADER, OrderEventCodec.BINARY_V1.getBytes(StandardCharsets.UTF_8));
+    private final Headers jsonHeaders = new RecordHeaders()
+            .add(OrderEventCodec.FORMAT_HEADER, OrderEventCodec.JSON.getBytes(StandardCharsets.UTF_8));
+    private byte[] binary;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<OrderItemDto> orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            orderItems.add(new OrderItemDto((long) i, "SKU-" + (100_000 + i), "Product " + i, 1 + i % 5, new BigDecimal("19.99")));
+        }
+        OrderMessage order = new OrderMessage();
+        order.setOrderId(7_300_000_000_000_000_000L + items);
+        order.setReservationId("3f2b8c1e-6a4d-4e8f-9c1a-2b7d5e0f4a11");
+        order.setOrderItems(orderItems);
+
+        binary = OrderEventCodec.encode(order);
+        json = new ObjectMapper().writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public OrderMessage binary() {
+        return deserializer.deserialize("order_placed", binaryHeaders, binary);
+    }
+
+    @Benchmark
+    public OrderMessage json() {
+        return deserializer.deserialize("order_placed", jsonHeaders, json);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.product_service.cache;
+
+import com.example.product_service.entity.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bounded in-process cache of Product state, looked up by skuCode or by id.
+ *
+ * Entries are detached copies, never the JPA-managed entity. Filled from database reads, and evicted
+ * once a transaction that changed the product has committed, so the next lookup reads the committed row.
+ * Each SKU remembers when it was last evicted, and a fill whose read started before that is dropped:
+ * it may have read the row before the change committed. Expiry after write is only a backstop.
+ *
+ * With product.cache.enabled=false every lookup misses and writes are ignored,
+ * which keeps a database-only mode available for comparison benchmarks.
+ */
+@Component
+public class ProductCache {
+
+    private final boolean enabled;
+
+    private final Cache<String, Product> productsBySku;
+    private final Cache<Long, String> skuById;
+    // System.nanoTime() of the last eviction per SKU, kept as long as an entry could live
+    private final Cache<String, Long> evictedAt;
+
+    public ProductCache(@Value("${product.cache.enabled:true}") boolean enabled,
+                        @Value("${product.cache.max-size:10000}") long maxSize,
+                        @Value("${product.cache.expire-after-write-ms:30000}") long expireAfterWriteMs,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.productsBySku = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        this.skuById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        this.evictedAt = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size ... under /actuator/metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, productsBySku, "products.bySku");
+        CaffeineCacheMetrics.monitor(meterRegistry, skuById, "products.byId");
+    }
+
+    public Optional<Product> getBySku(String skuCode) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(productsBySku.getIfPresent(skuCode));
+    }
+
+    public Optional<Product> getById(Long id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String skuCode = skuById.getIfPresent(id);
+        return skuCode == null ? Optional.empty() : getBySku(skuCode);
+    }
+
+    // Take before reading the rows that will be put
+    public static long readStarted() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Caches a product read from the database, unless the SKU was evicted after the read started.
+     *
+     * @param readStartedAt readStarted() taken before the product was read.
+     */
+    public void put(Product product, long readStartedAt) {
+        if (!enabled) {
+            return;
+        }
+        skuById.put(product.getId(), product.getSkuCode());
+        productsBySku.asMap().compute(product.getSkuCode(), (sku, cached) -> {
+            Long evicted = evictedAt.getIfPresent(sku);
+            return evicted != null && evicted - readStartedAt >= 0 ? cached : copyOf(product, product.getQuantity());
+        });
+    }
+
+    /**
+     * Drops the cached copies of products changed by the current transaction, once it has committed
+     * (right away outside a transaction). Nothing is dropped if the transaction rolls back.
+     */
+    public void evictAfterCommit(Collection<String> skuCodes) {
+        if (!enabled || skuCodes.isEmpty()) {
+            return;
+        }
+        List<String> evicted = List.copyOf(skuCodes);
+        afterCommit(() -> evicted.forEach(skuCode -> productsBySku.asMap().compute(skuCode, (sku, cached) -> {
+            evictedAt.put(sku, System.nanoTime());
+            return null;
+        })));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Product copyOf(Product product, int quantity) {
+        return new Product(product.getId(), product.getName(), product.getDescription(),
+                product.getSkuCode(), product.getPrice(), quantity, product.getStockVersion(), product.getStockUpdatedAt());
+    }
+}
@@ -1,12 +1,163 @@
 package com.example.product_service.config;
 
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.exception.ReplyFailedException;
+import com.example.product_service.kafka.ConsumerMetrics;
+import com.example.product_service.kafka.codec.OrderMessageDeserializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.util.Map;
+import java.util.Properties;
 
 @Configuration
 @EnableKafka
 public class KafkaConsumerConfig {
     // @EnableKafka enables detection of @KafkaListener annotations
     // Spring Boot auto-configuration will handle the rest
-}
 
+    // Max records handed to the batch listener per poll
+    @Value("${product.consumer.batch.max-records:500}")
+    private int batchMaxRecords;
+
+    // Broker waits up to max-wait-ms for min-bytes of data before answering a fetch,
+    // so quiet periods still produce reasonably sized batches
+    @Value("${product.consumer.batch.max-wait-ms:100}")
+    private int batchMaxWaitMs;
+
+    @Value("${product.consumer.batch.min-bytes:16384}")
+    private int batchMinBytes;
+
+    // Boot only applies this to the containers it creates itself
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Listener threads per @KafkaListener, useful up to the topic's partition count
+    @Value("${product.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${spring.kafka.listener.auto-startup:true}")
+    private boolean autoStartup;
+
+    // A failing record is delivered again until it succeeds, first after interval-ms, then twice as long
+    // each time up to max-interval-ms (below max.poll.interval.ms, or the consumer is taken out of the group)
+    @Value("${product.consumer.retry.interval-ms:1000}")
+    private long retryIntervalMs;
+
+    @Value("${product.consumer.retry.max-interval-ms:30000}")
+    private long retryMaxIntervalMs;
+
+    /**
+     * Default container factory, used by ProductConsumer. Several listener threads each handle
+     * their own partitions; SkuShardDispatcher keeps updates to one SKU in order across them.
+     * The listener acknowledges a record once its stock change has committed, and the acknowledged
+     * offsets are committed together after each poll (AckMode.MANUAL).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "product.consumer.mode", havingValue = "record", matchIfMissing = true)
+    public ConcurrentKafkaListenerContainerFactory<String, OrderMessage> kafkaListenerContainerFactory(
+            ConsumerFactory<String, OrderMessage> consumerFactory, ConsumerMetrics consumerMetrics,
+            MeterRegistry meterRegistry) {
+
+        ConcurrentKafkaListenerContainerFactory<String, OrderMessage> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(withParseTimers(consumerFactory, meterRegistry));
+        factory.setConcurrency(concurrency);
+        factory.setAutoStartup(autoStartup);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(errorHandler(retryIntervalMs, retryMaxIntervalMs, consumerMetrics));
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerMetrics.placedPartitionsListener());
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("inventory-record-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+
+        return factory;
+    }
+
+    /**
+     * Container factory for InventoryBatchConsumer: delivers a whole poll to the listener
+     * and commits the offsets only after the listener returned without an exception.
+     * Failures go to the same error handler as in record mode: the listener throws BatchListenerFailedException
+     * naming the first record it did not finish, the offsets before it are committed and the poll is delivered
+     * again from that record, until it succeeds.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "product.consumer.mode", havingValue = "batch")
+    public ConcurrentKafkaListenerContainerFactory<String, OrderMessage> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, OrderMessage> consumerFactory, ConsumerMetrics consumerMetrics,
+            MeterRegistry meterRegistry) {
+
+        ConcurrentKafkaListenerContainerFactory<String, OrderMessage> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(withParseTimers(consumerFactory, meterRegistry));
+        factory.setBatchListener(true);
+        factory.setAutoStartup(autoStartup);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(errorHandler(retryIntervalMs, retryMaxIntervalMs, consumerMetrics));
+        factory.getContainerProperties().setConsumerRebalanceListener(consumerMetrics.placedPartitionsListener());
+
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxRecords);
+        consumerProperties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        consumerProperties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("inventory-batch-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+
+        return factory;
+    }
+
+    // OrderMessageDeserializer is created by the Kafka client, it finds the registry in the consumer configs
+    private static ConsumerFactory<String, OrderMessage> withParseTimers(ConsumerFactory<String, OrderMessage> consumerFactory,
+                                                                         MeterRegistry meterRegistry) {
+        consumerFactory.updateConfigs(Map.of(OrderMessageDeserializer.METER_REGISTRY_CONFIG, meterRegistry));
+        return consumerFactory;
+    }
+
+    /**
+     * Retries a failing record with exponential backoff and no limit, so a database or broker outage delays
+     * the order's stock change instead of dropping it. Only records that can never succeed are logged and
+     * skipped right away: those that could not be decoded and those with invalid content.
+     */
+    static DefaultErrorHandler errorHandler(long initialIntervalMs, long maxIntervalMs, ConsumerMetrics consumerMetrics) {
+        ExponentialBackOff backOff = new ExponentialBackOff(initialIntervalMs, 2.0);
+        backOff.setMaxInterval(maxIntervalMs);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(backOff);
+        errorHandler.addNotRetryableExceptions(DeserializationException.class, SerializationException.class,
+                IllegalArgumentException.class);
+        // Checked first, before its cause: the order's stock may already be taken, order-service has to hear of it
+        errorHandler.addRetryableExceptions(ReplyFailedException.class);
+        errorHandler.setRetryListeners(new RetryListener() {
+            @Override
+            public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int deliveryAttempt) {
+                consumerMetrics.recordFailure(record.topic(), ex);
+            }
+
+            @Override
+            public void recovered(ConsumerRecord<?, ?> record, Exception ex) {
+                consumerMetrics.recordSkipped(record.topic(), ex);
+            }
+        });
+        return errorHandler;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.product_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Producer for the topics product-service writes to: inventory_changed (see InventoryEventPublisher)
+ * and inventory_reserved / inventory_rejected, the replies to pending orders (see OrderConfirmationHandler).
+ */
+@Configuration
+public class KafkaProducerConfig {
+
+    @Value("${product.inventory-events.topic:inventory_changed}")
+    private String topic;
+
+    @Value("${product.inventory-events.partitions:6}")
+    private int partitions;
+
+    @Value("${product.inventory-events.replicas:1}")
+    private int replicas;
+
+    // Compacted: the topic keeps the latest stock per SKU, so a consumer can rebuild the full picture from it
+    @Bean
+    @ConditionalOnProperty(name = "product.inventory-events.enabled", havingValue = "true", matchIfMissing = true)
+    public NewTopic inventoryChangedTopic() {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(replicas)
+                .compact()
+                .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, "60000")
+                .build();
+    }
+
+    // Starts from Boot's spring.kafka.* / spring.kafka.producer.* settings (this bean replaces Boot's producer factory),
+    // the values below are only defaults for what those leave unset
+    @Bean
+    public ProducerFactory<String, Object> inventoryProducerFactory(KafkaProperties kafkaProperties,
+                                                                    ObjectMapper objectMapper,
+                                                                    MeterRegistry meterRegistry) {
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildProducerProperties());
+        config.putIfAbsent(ProducerConfig.ACKS_CONFIG, "all");
+        config.putIfAbsent(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.putIfAbsent(ProducerConfig.LINGER_MS_CONFIG, 5);
+        // Sends run after the stock change committed, don't hold the committing thread long if Kafka is down
+        config.putIfAbsent(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000);
+
+        JsonSerializer<Object> valueSerializer = new JsonSerializer<>(objectMapper);
+        valueSerializer.setAddTypeInfo(false);
+        DefaultKafkaProducerFactory<String, Object> producerFactory =
+                new DefaultKafkaProducerFactory<>(config, new StringSerializer(), valueSerializer);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> inventoryKafkaTemplate(ProducerFactory<String, Object> inventoryProducerFactory) {
+        return new KafkaTemplate<>(inventoryProducerFactory);
+    }
+}
@@ -3,12 +3,19 @@ package com.example.product_service.controller;
 import com.example.product_service.dto.ProductAvailabilityRequest;
 import com.example.product_service.dto.ProductAvailabilityResponse;
 import com.example.product_service.dto.ProductDto;
+import com.example.product_service.dto.ReservationRequest;
+import com.example.product_service.dto.ReservationResponse;
+import com.example.product_service.exception.ResourceNotFoundException;
 import com.example.product_service.service.ProductService;
+import com.example.product_service.service.ReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -17,6 +24,9 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ReservationService reservationService;
+
     @GetMapping("/{id}")
     public ProductDto getProductById(@PathVariable Long id) {
         return productService.getProductById(id);
@@ -34,6 +44,17 @@ public class ProductController {
         return ResponseEntity.ok(updatedProduct);
     }
 
+    // Removes the product; order-service's inventory view drops it too (tombstone on inventory_changed)
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
+        try {
+            productService.deleteProduct(id);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     /*@PostMapping("/availability")
     private ResponseEntity<ProductAvailabilityResponse>checkProductAvailability(@RequestBody List<ProductDTO> products) {
         ProductAvailabilityResponse availabilityList = productService.checkProductAvailability(products);
@@ -55,4 +76,30 @@ public class ProductController {
     //Request → list of ProductDTO (client tells us what they want).
     //Response → ProductAvailabilityResponse (server tells client what is actually available).
 
+    // Places time-limited holds on the available items, released by order_placed / order_cancelled or expiry
+    @PostMapping("/reservations")
+    public ResponseEntity<ReservationResponse> reserveProducts(@RequestBody ReservationRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(reservationService.reserve(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Releases part of a reservation (quantity per skuCode), e.g. what a batch of orders did not use
+    @PostMapping("/reservations/{id}/release")
+    public ResponseEntity<Void> releaseReservedQuantities(@PathVariable String id, @RequestBody Map<String, Integer> quantities) {
+        return reservationService.release(id, null, quantities, "released")
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/reservations/{id}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String id) {
+        return reservationService.release(id, "released")
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
 }
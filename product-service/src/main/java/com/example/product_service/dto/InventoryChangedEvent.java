@@ -0,0 +1,20 @@
+package com.example.product_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Value of the compacted inventory_changed topic, keyed by skuCode: the SKU's stock after a committed change
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryChangedEvent {
+    private String skuCode;
+    private int quantity;
+    // products.stock_version after the change, higher wins
+    private long version;
+    // Epoch millis at which the stock was stored (products.stock_updated_at), 0 if unknown
+    private long changedAt;
+}
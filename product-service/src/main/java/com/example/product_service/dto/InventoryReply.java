@@ -0,0 +1,21 @@
+package com.example.product_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Answer to a pending order, sent to inventory_reserved or inventory_rejected keyed by order id
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryReply {
+    private Long orderId;
+    // SKUs that were unknown or short on stock, empty when reserved
+    private List<String> rejectedSkus;
+    // Epoch millis of the decision
+    private long repliedAt;
+}
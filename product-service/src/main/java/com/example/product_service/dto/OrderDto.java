@@ -19,4 +19,6 @@ public class OrderDto {
 
     private List<OrderItemDto> orderItems;
 
+    private String reservationId;
+
 }
\ No newline at end of file
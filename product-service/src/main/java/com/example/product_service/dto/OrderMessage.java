@@ -10,6 +10,13 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OrderMessage {
 
+    @JsonProperty("id")
+    private Long orderId;
+
     @JsonProperty("orderItems")
     private List<OrderItemDto> orderItems;
+
+    // Stock reservation made by Order Service before placing the order, if any
+    @JsonProperty("reservationId")
+    private String reservationId;
 }
\ No newline at end of file
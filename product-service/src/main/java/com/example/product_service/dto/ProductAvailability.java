@@ -12,4 +12,6 @@ import lombok.NoArgsConstructor;
 public class ProductAvailability {
     private String skuCode;
     private boolean available;
+    // Units usable for this SKU: stock for /availability, units held for /reservations
+    private int availableQuantity;
 }
\ No newline at end of file
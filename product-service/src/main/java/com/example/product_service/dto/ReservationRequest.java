@@ -0,0 +1,16 @@
+package com.example.product_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationRequest {
+    private List<ProductAvailabilityRequest> items;
+    // Hold whatever is free for a SKU when it can't cover the full quantity, instead of nothing
+    private boolean partial;
+}
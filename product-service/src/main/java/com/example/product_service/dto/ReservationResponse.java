@@ -0,0 +1,21 @@
+package com.example.product_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationResponse {
+    // null when nothing could be held
+    private String reservationId;
+    private Instant expiresAt;
+    // available = the whole quantity of this SKU is held, availableQuantity = units held (may be less with partial)
+    private List<ProductAvailability> productAvailabilityList;
+}
@@ -0,0 +1,24 @@
+package com.example.product_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Stock change of an order event that has already been applied, written in the same transaction.
+// eventKey is "<eventType>:<orderId>:<skuCode>", see ProcessedEventService.
+@Entity
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processed_at"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProcessedEvent {
+    @Id
+    @Column(length = 200)
+    private String eventKey;
+
+    @Column(nullable = false)
+    private Instant processedAt;
+}
@@ -4,6 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 @Entity
 @Table(name = "products")
@@ -21,5 +24,18 @@ public class Product {
     private String skuCode;
 
     private Double price;
+
+    // Stock columns are only written on insert and by SQL updates (ProductRepository, ProductService),
+    // so saving a product loaded earlier can't overwrite a concurrent stock change or reuse its version
+    @Column(updatable = false)
     private int quantity;
+
+    // Bumped by every stock change, lets consumers of inventory_changed ignore events that arrive out of order
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long stockVersion;
+
+    // When the stock last changed, sent as changedAt on inventory_changed (null for rows not changed since it was added)
+    @Column(updatable = false)
+    private Instant stockUpdatedAt;
 }
@@ -0,0 +1,8 @@
+package com.example.product_service.exception;
+
+// A saga reply could not be sent; the consumer error handler retries it until it goes out, whatever the cause
+public class ReplyFailedException extends RuntimeException {
+    public ReplyFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.product_service.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.record.TimestampType;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the order event consumer path, shared by ProductConsumer, InventoryBatchConsumer,
+ * SkuShardDispatcher and the container error handler.
+ *
+ * Parse time is recorded by OrderMessageDeserializer (inventory.consumer.parse.time, registered here through
+ * KafkaConsumerConfig) and consumer lag per partition comes from the Kafka client metrics Boot binds
+ * (kafka.consumer.fetch.manager.records.lag).
+ */
+@Component
+public class ConsumerMetrics {
+
+    // Set by order-service's OrderProducer: epoch millis at which the order (and its event) was created
+    public static final String CREATED_AT_HEADER = "order-created-at";
+
+    private record TopicMeters(Counter records, Timer eventDelay, Timer apply, Timer orderToApplied) {
+    }
+
+    private record ItemMeters(Timer apply, DistributionSummary items) {
+    }
+
+    private static final String ORDER_PLACED_TOPIC = "order_placed";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TopicMeters> metersByTopic = new ConcurrentHashMap<>();
+    // Creation time of the newest order_placed event applied, per order_placed partition assigned here
+    // (0 until one of its events is applied)
+    private final Map<Integer, Long> placedAppliedThrough = new ConcurrentHashMap<>();
+    private final Map<String, ItemMeters> itemMeters = new ConcurrentHashMap<>();
+
+    public ConsumerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Counts the record and how long after it was produced it got here
+    public void recordReceived(ConsumerRecord<?, ?> record) {
+        TopicMeters meters = meters(record.topic());
+        meters.records().increment();
+        if (record.timestampType() != TimestampType.NO_TIMESTAMP_TYPE && record.timestamp() > 0) {
+            meters.eventDelay().record(Math.max(0, System.currentTimeMillis() - record.timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Time to apply one whole record (all of its shards)
+    public void recordApplied(String topic, long nanos) {
+        meters(topic).apply().record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Time of one transaction applying an event's items, and how many items it applied;
+    // time per item is the ratio of the two sums
+    public void recordItemsApplied(String eventType, long nanos, int items) {
+        if (items <= 0) {
+            return;
+        }
+        ItemMeters meters = itemMeters.computeIfAbsent(eventType, type -> new ItemMeters(
+                Timer.builder("inventory.consumer.items.apply.time")
+                        .description("Time of one transaction applying the stock changes of an event's items")
+                        .tag("event", type)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                DistributionSummary.builder("inventory.consumer.items.per.apply")
+                        .description("Items applied by one such transaction")
+                        .tag("event", type)
+                        .register(meterRegistry)));
+        meters.apply().record(nanos, TimeUnit.NANOSECONDS);
+        meters.items().record(items);
+    }
+
+    // Order created in order-service until its stock change is applied here, end to end
+    public void recordOrderApplied(ConsumerRecord<?, ?> record) {
+        Header createdAt = record.headers().lastHeader(CREATED_AT_HEADER);
+        if (createdAt == null) {
+            return;
+        }
+        try {
+            long createdAtMillis = Long.parseLong(new String(createdAt.value(), StandardCharsets.UTF_8));
+            meters(record.topic()).orderToApplied()
+                    .record(Math.max(0, System.currentTimeMillis() - createdAtMillis), TimeUnit.MILLISECONDS);
+            if (ORDER_PLACED_TOPIC.equals(record.topic())) {
+                // Only while assigned, a record finished after its partition was revoked doesn't bring it back
+                placedAppliedThrough.computeIfPresent(record.partition(), (partition, through) -> Math.max(through, createdAtMillis));
+            }
+        } catch (NumberFormatException e) {
+            // Not ours to fail on, the latency just isn't recorded
+        }
+    }
+
+    /**
+     * Time (order-service's clock) up to which order_placed events have been applied on every order_placed
+     * partition assigned to this instance, 0 while any of them has had none applied since it was assigned
+     * (or none is assigned). Orders created before it on those partitions have had their placed event applied.
+     * A lagging or idle partition holds it back, which only delays what waits on it.
+     */
+    public long placedEventsAppliedThrough() {
+        return placedAppliedThrough.values().stream().mapToLong(Long::longValue).min().orElse(0);
+    }
+
+    /**
+     * Keeps placedEventsAppliedThrough to the partitions assigned here (set on every listener container):
+     * a newly assigned order_placed partition counts from 0 until one of its events is applied, as its backlog
+     * may hold events of any age, and a revoked or lost one stops counting.
+     */
+    public ConsumerRebalanceListener placedPartitionsListener() {
+        return new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                placedPartitions(partitions).forEach(partition -> placedAppliedThrough.put(partition, 0L));
+            }
+
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                placedPartitions(partitions).forEach(placedAppliedThrough::remove);
+            }
+        };
+    }
+
+    private static List<Integer> placedPartitions(Collection<TopicPartition> partitions) {
+        return partitions.stream()
+                .filter(partition -> ORDER_PLACED_TOPIC.equals(partition.topic()))
+                .map(TopicPartition::partition)
+                .toList();
+    }
+
+    // Items whose stock change was refused (not enough stock or unknown SKU)
+    public void recordRejectedItems(String topic, int items) {
+        if (items > 0) {
+            meterRegistry.counter("inventory.consumer.items.rejected", "topic", topic).increment(items);
+        }
+    }
+
+    // Failed delivery attempt, tagged with the exception behind it
+    public void recordFailure(String topic, Exception exception) {
+        meterRegistry.counter("inventory.consumer.failures",
+                "topic", topic,
+                "cause", rootCause(exception).getClass().getSimpleName()).increment();
+    }
+
+    // Record skipped without its change being applied, it can never succeed (unreadable or invalid)
+    public void recordSkipped(String topic, Exception exception) {
+        meterRegistry.counter("inventory.consumer.skipped",
+                "topic", topic,
+                "cause", rootCause(exception).getClass().getSimpleName()).increment();
+    }
+
+    private static Throwable rootCause(Exception exception) {
+        return exception instanceof ListenerExecutionFailedException && exception.getCause() != null
+                ? exception.getCause() : exception;
+    }
+
+    private TopicMeters meters(String topic) {
+        return metersByTopic.computeIfAbsent(topic, t -> new TopicMeters(
+                meterRegistry.counter("inventory.consumer.records", "topic", t),
+                Timer.builder("inventory.consumer.event.delay")
+                        .description("Time from the event's Kafka timestamp until it is consumed")
+                        .tag("topic", t)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Timer.builder("inventory.consumer.apply.time")
+                        .tag("topic", t)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Timer.builder("inventory.consumer.order.to.applied.time")
+                        .description("Time from order creation in order-service until its stock change was applied")
+                        .tag("topic", t)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+    }
+}
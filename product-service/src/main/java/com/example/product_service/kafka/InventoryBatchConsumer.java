@@ -0,0 +1,252 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.exception.InsufficientStockException;
+import com.example.product_service.service.ProcessedEventService;
+import com.example.product_service.service.ProductService;
+import com.example.product_service.service.ReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch alternative to ProductConsumer, enabled with product.consumer.mode=batch.
+ *
+ * Takes a whole poll from both order topics, nets placed (-) and cancelled (+) quantities
+ * per SKU and applies the net deltas in one transaction. Offsets are committed by the
+ * container only after that transaction succeeded; if it fails the batch is redelivered.
+ *
+ * Each order is still applied all-or-nothing: if the netted transaction is rejected, the orders
+ * touching the rejected SKUs are taken out of it, the rest is netted and applied again, and the
+ * taken-out orders are applied one by one afterwards, like ProductConsumer does. An order's keys are
+ * only stored, and its stock hold only released, with a stock change that committed.
+ * Pending orders of order-service's confirmation saga are left out of the netting
+ * and handled one by one by OrderConfirmationHandler, after the deltas.
+ *
+ * Any other failure is thrown as BatchListenerFailedException naming the first record not finished: the first
+ * of the batch while the deltas are applied (redelivered changes are recognised by their keys), the failed
+ * one while confirming. The container commits the offsets before it and retries from there until it succeeds.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "product.consumer.mode", havingValue = "batch")
+public class InventoryBatchConsumer {
+
+    private static final String ORDER_PLACED_TOPIC = "order_placed";
+    private static final String ORDER_CANCELLED_TOPIC = "order_cancelled";
+
+    private final ProductService productService;
+    private final ReservationService reservationService;
+    private final ProcessedEventService processedEventService;
+    private final ConsumerMetrics consumerMetrics;
+    private final OrderConfirmationHandler orderConfirmationHandler;
+
+    private final Counter recordsCounter;
+    private final Counter skippedCounter;
+    private final DistributionSummary transactionsPerBatch;
+    private final DistributionSummary skusPerBatch;
+    private final Timer applyTimer;
+
+    public InventoryBatchConsumer(ProductService productService, ReservationService reservationService,
+                                  ProcessedEventService processedEventService, ConsumerMetrics consumerMetrics,
+                                  OrderConfirmationHandler orderConfirmationHandler, MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.reservationService = reservationService;
+        this.processedEventService = processedEventService;
+        this.consumerMetrics = consumerMetrics;
+        this.orderConfirmationHandler = orderConfirmationHandler;
+
+        this.recordsCounter = meterRegistry.counter("inventory.batch.records");
+        this.skippedCounter = meterRegistry.counter("inventory.batch.records.skipped");
+        this.transactionsPerBatch = DistributionSummary.builder("inventory.batch.db.transactions")
+                .description("Database transactions committed while applying one batch")
+                .register(meterRegistry);
+        this.skusPerBatch = DistributionSummary.builder("inventory.batch.skus")
+                .description("Distinct SKUs with a non-zero net delta per batch")
+                .register(meterRegistry);
+        this.applyTimer = meterRegistry.timer("inventory.batch.apply.time");
+    }
+
+    private record HoldRelease(String reservationId, String releaseKey, Map<String, Integer> quantities, String reason) {
+    }
+
+    // One order's stock change not yet applied (deltas and keys are empty for a redelivered order)
+    private record OrderChange(String topic, Long orderId, Map<String, Integer> deltas, List<String> eventKeys,
+                               HoldRelease release) {
+    }
+
+    @KafkaListener(topics = {ORDER_PLACED_TOPIC, ORDER_CANCELLED_TOPIC},
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeBatch(List<ConsumerRecord<String, OrderMessage>> records) {
+
+        // Stock change of every order in the batch, in arrival order
+        List<OrderChange> changes = new ArrayList<>();
+        // Processed-event keys already claimed by an earlier record of the batch
+        Set<String> batchKeys = new HashSet<>();
+        // Pending orders, confirmed one by one
+        List<ConsumerRecord<String, OrderMessage>> confirmations = new ArrayList<>();
+        for (ConsumerRecord<String, OrderMessage> record : records) {
+            consumerMetrics.recordReceived(record);
+            int sign = ORDER_CANCELLED_TOPIC.equals(record.topic()) ? 1 : -1;
+            // Null when OrderMessageDeserializer could not decode the record
+            OrderMessage order = record.value();
+            if (order == null) {
+                skippedCounter.increment();
+                log.error("❌ Skipping unreadable record {}-{}@{}", record.topic(), record.partition(), record.offset());
+                continue;
+            }
+            if (sign < 0 && OrderConfirmationHandler.awaitsConfirmation(record)) {
+                confirmations.add(record);
+                continue;
+            }
+            List<OrderItemDto> items = order.getOrderItems();
+            if (items == null) {
+                continue;
+            }
+            if (items.stream().anyMatch(item -> item.getSkuCode() == null || item.getQuantity() <= 0)) {
+                skippedCounter.increment();
+                log.error("❌ Skipping invalid record {}-{}@{}: every item needs a skuCode and a positive quantity",
+                        record.topic(), record.partition(), record.offset());
+                continue;
+            }
+            try {
+                String eventType = sign < 0 ? "placed" : "cancelled";
+                Map<String, Integer> orderDeltas = new HashMap<>();
+                Map<String, Integer> orderQuantities = new HashMap<>();
+                for (OrderItemDto item : items) {
+                    orderDeltas.merge(item.getSkuCode(), sign * item.getQuantity(), Integer::sum);
+                    orderQuantities.merge(item.getSkuCode(), item.getQuantity(), Integer::sum);
+                }
+                HoldRelease release = order.getReservationId() == null ? null
+                        : new HoldRelease(order.getReservationId(), ProductConsumer.releaseKey(order),
+                                orderQuantities, sign < 0 ? "confirmed" : "cancelled");
+
+                // Events without an order id can't be recognised again and are always applied
+                Map<String, Integer> pendingDeltas = new HashMap<>();
+                List<String> eventKeys = new ArrayList<>();
+                orderDeltas.forEach((skuCode, delta) -> {
+                    if (order.getOrderId() == null) {
+                        pendingDeltas.put(skuCode, delta);
+                        return;
+                    }
+                    String eventKey = ProcessedEventService.eventKey(eventType, order.getOrderId(), skuCode);
+                    if (!batchKeys.contains(eventKey) && !processedEventService.isProcessed(eventKey)) {
+                        batchKeys.add(eventKey);
+                        eventKeys.add(eventKey);
+                        pendingDeltas.put(skuCode, delta);
+                    }
+                });
+                changes.add(new OrderChange(record.topic(), order.getOrderId(), pendingDeltas, eventKeys, release));
+            } catch (RuntimeException e) {
+                // e.g. the processed-event lookup failed, nothing has been applied yet
+                throw new BatchListenerFailedException("Failed to read the batch", e, records.get(0));
+            }
+        }
+
+        // Counted as each transaction commits, a failure part way through still records the ones that did
+        int committedTransactions = 0;
+        int nettedSkus = 0;
+        try {
+            try {
+                // Orders applied in the netted transaction, the others are applied one by one below
+                List<OrderChange> netted = new ArrayList<>(changes);
+                while (!netted.isEmpty()) {
+                    Map<String, Integer> deltas = netDeltas(netted);
+                    List<String> eventKeys = netted.stream().flatMap(change -> change.eventKeys().stream()).toList();
+                    if (deltas.isEmpty() && eventKeys.isEmpty()) {
+                        break;
+                    }
+                    try {
+                        applyTimer.record(() -> productService.applyOrderDeltas(deltas, eventKeys));
+                        committedTransactions++;
+                        nettedSkus = deltas.size();
+                        break;
+                    } catch (InsufficientStockException e) {
+                        Set<String> rejected = new HashSet<>(e.getSkuCodes());
+                        log.warn("⚠️  Insufficient stock for net reduction of SKUs {}, applying their orders one by one", rejected);
+                        netted.removeIf(change -> change.deltas().keySet().stream().anyMatch(rejected::contains));
+                    }
+                }
+
+                Set<OrderChange> applied = Collections.newSetFromMap(new IdentityHashMap<>());
+                applied.addAll(netted);
+                for (OrderChange change : changes) {
+                    if (!applied.contains(change) && applyOrder(change)) {
+                        committedTransactions++;
+                        applied.add(change);
+                    }
+                }
+
+                // Holds are dropped only for orders whose stock change committed, a rejected order's hold runs out
+                for (OrderChange change : changes) {
+                    HoldRelease release = change.release();
+                    if (release != null && applied.contains(change)) {
+                        reservationService.release(release.reservationId(), release.releaseKey(),
+                                release.quantities(), release.reason());
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Some changes may have committed, they are recognised by their keys when the batch comes again
+                throw new BatchListenerFailedException("Failed to apply the batch", e, records.get(0));
+            }
+
+            // Every record before a failed confirmation is finished, the batch is delivered again from that one;
+            // the deltas above are not applied twice
+            for (ConsumerRecord<String, OrderMessage> record : confirmations) {
+                try {
+                    if (orderConfirmationHandler.confirm(record.value())) {
+                        committedTransactions++;
+                    }
+                } catch (RuntimeException e) {
+                    throw new BatchListenerFailedException("Failed to confirm order ID: " + record.value().getOrderId(),
+                            e, record);
+                }
+            }
+        } finally {
+            transactionsPerBatch.record(committedTransactions);
+        }
+        records.forEach(consumerMetrics::recordOrderApplied);
+
+        recordsCounter.increment(records.size());
+        skusPerBatch.record(nettedSkus);
+        log.debug("Applied batch of {} records as {} SKU deltas", records.size(), nettedSkus);
+    }
+
+    // Net quantity change per SKU over the given orders, SKUs that cancel out are left out
+    private static Map<String, Integer> netDeltas(List<OrderChange> changes) {
+        Map<String, Integer> deltas = new HashMap<>();
+        changes.forEach(change -> change.deltas().forEach((skuCode, delta) -> deltas.merge(skuCode, delta, Integer::sum)));
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    // Applies one order taken out of the netted transaction, all-or-nothing; false if it was rejected
+    private boolean applyOrder(OrderChange change) {
+        try {
+            applyTimer.record(() -> productService.applyOrderDeltas(change.deltas(), change.eventKeys()));
+            return true;
+        } catch (InsufficientStockException e) {
+            consumerMetrics.recordRejectedItems(change.topic(), e.getSkuCodes().size());
+            log.warn("⚠️  Order ID: {}, inventory not changed, not enough stock (or unknown SKU) for {}",
+                    change.orderId(), e.getSkuCodes());
+            return false;
+        }
+    }
+}
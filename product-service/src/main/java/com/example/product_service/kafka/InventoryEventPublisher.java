@@ -0,0 +1,220 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.InventoryChangedEvent;
+import com.example.product_service.reservation.ReservationLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes the stock of changed SKUs to the compacted inventory_changed topic, keyed by skuCode,
+ * once the change has committed. Order-service keeps its local stock view from this topic.
+ *
+ * The stock is read after the commit and sent under a lock stripe of the SKU, so for each SKU reads and
+ * sends happen one after another: whichever publish runs last reads, and sends, the newest stock.
+ * The record compaction keeps is then always the SKU's newest version, also against the resync.
+ * Events carry products.stock_version, so a consumer can drop one that overtook a newer change
+ * of the same SKU. A send that fails after the commit is not retried; the periodic resync
+ * republishes every SKU, which bounds how long such a miss can last. A deleted SKU is published as a tombstone.
+ *
+ * The same after-commit read keeps the ReservationLedger's stock current, also with publishing disabled.
+ */
+@Slf4j
+@Component
+public class InventoryEventPublisher {
+
+    private static final String STOCK_SQL =
+            "SELECT sku_code, quantity, stock_version, stock_updated_at FROM products WHERE sku_code IN (%s)";
+    private static final String SKU_PAGE_SQL = "SELECT id, sku_code FROM products WHERE id > ? ORDER BY id LIMIT ?";
+    private static final int RESYNC_PAGE_SIZE = 1000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReservationLedger reservationLedger;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    // Plain ReentrantLocks (not synchronized) keep virtual threads from pinning while they wait
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    @Value("${product.inventory-events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${product.inventory-events.topic:inventory_changed}")
+    private String topic;
+
+    public InventoryEventPublisher(KafkaTemplate<String, Object> inventoryKafkaTemplate,
+                                   JdbcTemplate jdbcTemplate, ReservationLedger reservationLedger,
+                                   MeterRegistry meterRegistry) {
+        this.kafkaTemplate = inventoryKafkaTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reservationLedger = reservationLedger;
+        this.publishedCounter = meterRegistry.counter("inventory.events.published");
+        this.failedCounter = meterRegistry.counter("inventory.events.publish.failures");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Publishes the SKUs' stock once the current transaction commits (right away outside a transaction),
+     * reading it then, so it includes the transaction's changes and any committed after them.
+     * Nothing is published if it rolls back.
+     */
+    public void publishAfterCommit(Collection<String> skuCodes) {
+        List<String> skuList = enabled ? List.copyOf(skuCodes)
+                : skuCodes.stream().filter(reservationLedger::tracksStock).toList();
+        if (skuList.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> publishLatest(skuList));
+    }
+
+    // Tombstone (null value) for a deleted SKU, so compaction drops it and consumers remove it from their view
+    public void publishDeletedAfterCommit(String skuCode) {
+        afterCommit(() -> {
+            List<ReentrantLock> locked = lockStripes(List.of(skuCode));
+            try {
+                reservationLedger.removeStock(skuCode);
+                if (!enabled) {
+                    return;
+                }
+                kafkaTemplate.send(topic, skuCode, null).whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        publishedCounter.increment();
+                    } else {
+                        failedTombstone(skuCode, ex);
+                    }
+                });
+            } catch (RuntimeException e) {
+                failedTombstone(skuCode, e);
+            } finally {
+                locked.forEach(ReentrantLock::unlock);
+            }
+        });
+    }
+
+    // Republishes every SKU in pages; consumers ignore the ones they already have at this version
+    @Scheduled(fixedDelayString = "${product.inventory-events.resync-interval-ms:300000}",
+            initialDelayString = "${product.inventory-events.resync-interval-ms:300000}")
+    public void resync() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        int published = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>(RESYNC_PAGE_SIZE);
+            List<String> page = jdbcTemplate.query(SKU_PAGE_SQL, (rs, rowNum) -> {
+                ids.add(rs.getLong(1));
+                return rs.getString(2);
+            }, afterId, RESYNC_PAGE_SIZE);
+            if (!page.isEmpty()) {
+                // Read again under the locks, a change committed since the page was read is not overwritten
+                publishLatest(page);
+            }
+            published += page.size();
+            if (page.size() < RESYNC_PAGE_SIZE) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        log.debug("Republished stock of {} SKUs to {}", published, topic);
+    }
+
+    // Reads the SKUs' committed stock and sends it while their stripes are locked; a SKU deleted meanwhile has its tombstone
+    private void publishLatest(List<String> skuCodes) {
+        String placeholders = String.join(",", Collections.nCopies(skuCodes.size(), "?"));
+        List<ReentrantLock> locked = lockStripes(skuCodes);
+        try {
+            List<InventoryChangedEvent> events = jdbcTemplate.query(STOCK_SQL.formatted(placeholders),
+                    (rs, rowNum) -> event(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.getTimestamp(4)),
+                    skuCodes.toArray());
+            for (InventoryChangedEvent event : events) {
+                reservationLedger.updateStock(event.getSkuCode(), event.getQuantity(), event.getVersion());
+                if (enabled) {
+                    send(event);
+                }
+            }
+        } finally {
+            locked.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    // Locks in ascending stripe order, so publishers of overlapping SKU sets can't deadlock
+    private List<ReentrantLock> lockStripes(Collection<String> skuCodes) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        skuCodes.forEach(skuCode -> indexes.add(Math.floorMod(skuCode.hashCode(), LOCK_STRIPES)));
+        List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    // changedAt is when the stock was stored, also for resync events; 0 if the row predates stock_updated_at
+    private static InventoryChangedEvent event(String skuCode, int quantity, long version, Timestamp updatedAt) {
+        return InventoryChangedEvent.builder()
+                .skuCode(skuCode)
+                .quantity(quantity)
+                .version(version)
+                .changedAt(updatedAt != null ? updatedAt.getTime() : 0)
+                .build();
+    }
+
+    private void send(InventoryChangedEvent event) {
+        try {
+            kafkaTemplate.send(topic, event.getSkuCode(), event).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    publishedCounter.increment();
+                } else {
+                    failed(event, ex);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. no metadata within max.block.ms
+            failed(event, e);
+        }
+    }
+
+    private void failed(InventoryChangedEvent event, Throwable cause) {
+        failedCounter.increment();
+        log.warn("Could not publish stock of {} (version {}), the next change or resync will: {}",
+                event.getSkuCode(), event.getVersion(), cause.getMessage());
+    }
+
+    private void failedTombstone(String skuCode, Throwable cause) {
+        failedCounter.increment();
+        log.warn("Could not publish the removal of {}, consumers keep showing its last stock: {}",
+                skuCode, cause.getMessage());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.InventoryReply;
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.exception.InsufficientStockException;
+import com.example.product_service.exception.ReplyFailedException;
+import com.example.product_service.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Product side of order-service's confirmation saga.
+ *
+ * order_placed events of PENDING orders carry the order-confirmation header. Their stock is taken for the
+ * whole order or not at all, and the outcome is sent to inventory_reserved or inventory_rejected.
+ * Used by both consumers instead of their usual stock path.
+ */
+@Slf4j
+@Component
+public class OrderConfirmationHandler {
+
+    // Same header as order-service's OrderProducer.CONFIRMATION_HEADER
+    public static final String CONFIRMATION_HEADER = "order-confirmation";
+
+    private static final String INVENTORY_RESERVED_TOPIC = "inventory_reserved";
+    private static final String INVENTORY_REJECTED_TOPIC = "inventory_rejected";
+
+    private final ProductService productService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${product.saga.reply-timeout-ms:10000}")
+    private long replyTimeoutMs;
+
+    public OrderConfirmationHandler(ProductService productService, KafkaTemplate<String, Object> inventoryKafkaTemplate,
+                                    MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.kafkaTemplate = inventoryKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static boolean awaitsConfirmation(ConsumerRecord<?, ?> record) {
+        return record.headers().lastHeader(CONFIRMATION_HEADER) != null;
+    }
+
+    /**
+     * Takes the order's stock and replies, returning once the broker acked the reply, so the record
+     * is only acknowledged after that. If the reply can't be sent this throws ReplyFailedException and the
+     * record is delivered again until it goes out, with no limit: the stock isn't taken twice
+     * (ProductService.reserveOrderStock) and the reply is sent again. A reply that arrives after order-service
+     * timed the order out makes it hand the stock back, so stock committed here is never left behind.
+     *
+     * @return true if a stock change was committed for the order by this call.
+     */
+    public boolean confirm(OrderMessage order) {
+        if (order.getOrderId() == null) {
+            log.error("❌ Pending order event without order ID, nobody to reply to");
+            return false;
+        }
+        Map<String, Integer> quantitiesBySku = new HashMap<>();
+        List<OrderItemDto> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+        items.forEach(item -> quantitiesBySku.merge(item.getSkuCode(), item.getQuantity(), Integer::sum));
+
+        if (quantitiesBySku.isEmpty()) {
+            log.warn("⚠️  No order items found in pending order ID: {}, rejecting it", order.getOrderId());
+            reply(INVENTORY_REJECTED_TOPIC, order.getOrderId(), List.of());
+            return false;
+        }
+        List<String> rejected;
+        boolean committed = false;
+        try {
+            committed = productService.reserveOrderStock(order.getOrderId(), quantitiesBySku);
+            if (!committed) {
+                log.debug("Stock of order ID: {} already taken, replying again", order.getOrderId());
+            }
+            rejected = List.of();
+        } catch (InsufficientStockException e) {
+            rejected = e.getSkuCodes();
+        }
+        reply(rejected.isEmpty() ? INVENTORY_RESERVED_TOPIC : INVENTORY_REJECTED_TOPIC, order.getOrderId(), rejected);
+        return committed;
+    }
+
+    // Any failure is a ReplyFailedException: even one caused by a record the error handler would otherwise skip
+    // (a SerializationException, say) must be retried, the stock may already be taken
+    private void reply(String topic, Long orderId, List<String> rejected) {
+        InventoryReply reply = new InventoryReply(orderId, rejected, System.currentTimeMillis());
+        try {
+            kafkaTemplate.send(topic, orderId.toString(), reply).get(replyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ReplyFailedException("Interrupted while replying to order ID: " + orderId, e);
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            meterRegistry.counter("inventory.saga.reply.failures", "topic", topic).increment();
+            throw new ReplyFailedException("Unable to send " + topic + " for order ID: " + orderId, e);
+        }
+        meterRegistry.counter("inventory.saga.replies", "topic", topic).increment();
+        log.debug("Replied {} for order ID: {}", topic, orderId);
+    }
+}
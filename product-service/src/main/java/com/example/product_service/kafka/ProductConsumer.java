@@ -1,113 +1,123 @@
 package com.example.product_service.kafka;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.example.product_service.dto.OrderItemDto;
 import com.example.product_service.dto.OrderMessage;
-import com.example.product_service.service.ProductService;
+import com.example.product_service.service.ReservationService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+// Record-at-a-time consumer, the default. product.consumer.mode=batch switches to InventoryBatchConsumer.
 @Service
 @Slf4j
+@ConditionalOnProperty(name = "product.consumer.mode", havingValue = "record", matchIfMissing = true)
 public class ProductConsumer {
 
     @Autowired
-    private ProductService productService;
+    private ReservationService reservationService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private SkuShardDispatcher skuShardDispatcher;
+
+    @Autowired
+    private ConsumerMetrics consumerMetrics;
+
+    @Autowired
+    private OrderConfirmationHandler orderConfirmationHandler;
 
     private static final String ORDER_PLACED_TOPIC = "order_placed";
     private static final String ORDER_CANCELLED_TOPIC = "order_cancelled";
 
+    // Offsets are acknowledged only after the stock change has committed; the container commits
+    // the acknowledged offsets together once the poll has been processed (AckMode.MANUAL).
+    // Exceptions are not swallowed: the container's error handler retries the record until it succeeds,
+    // only invalid records (IllegalArgumentException) are logged and skipped.
+    // Per-event logging is at debug level, the volume is visible through ConsumerMetrics instead.
     @KafkaListener(topics = ORDER_PLACED_TOPIC)
-    public void consumeOrderPlaced(String message) {
-
-        log.info("=== Kafka Consumer: Received ORDER_PLACED event ===");
-        log.info("Raw message: {}", message);
-
-        try {
-            OrderMessage order =
-                    objectMapper.readValue(message, OrderMessage.class);
-
-            log.info("Parsed order successfully. Order Items: {}",
-                order.getOrderItems() != null ? order.getOrderItems().size() : 0);
-
-            List<OrderItemDto> items = order.getOrderItems();
-
-            if (items != null && !items.isEmpty()) {
-                log.info("Processing {} items for inventory reduction", items.size());
-                items.forEach(item -> {
-                    log.info("Reducing inventory - SKU: {}, Quantity: {}",
-                        item.getSkuCode(), item.getQuantity());
-                    try {
-                        productService.reduceProductQuantity(
-                                item.getSkuCode(),
-                                item.getQuantity()
-                        );
-                        log.info("✅ Successfully reduced inventory for SKU: {}", item.getSkuCode());
-                    } catch (Exception e) {
-                        log.error("❌ Failed to reduce inventory for SKU: {}. Error: {}",
-                            item.getSkuCode(), e.getMessage(), e);
-                    }
-                });
-                log.info("=== ORDER_PLACED event processing completed ===");
-            } else {
-                log.warn("⚠️  No order items found in the message!");
+    public void consumeOrderPlaced(ConsumerRecord<String, OrderMessage> record, Acknowledgment acknowledgment) {
+        consumerMetrics.recordReceived(record);
+        OrderMessage order = record.value();
+        List<OrderItemDto> items = order.getOrderItems();
+        log.debug("Received ORDER_PLACED event for order ID: {} ({} items)", order.getOrderId(),
+            items != null ? items.size() : 0);
+
+        if (OrderConfirmationHandler.awaitsConfirmation(record)) {
+            // Pending order: whole order or nothing, and order-service gets an answer
+            long start = System.nanoTime();
+            orderConfirmationHandler.confirm(order);
+            consumerMetrics.recordApplied(record.topic(), System.nanoTime() - start);
+            consumerMetrics.recordOrderApplied(record);
+        } else if (items != null && !items.isEmpty()) {
+            long start = System.nanoTime();
+            // Items are reduced on their SKUs' shards, in parallel across orders, all-or-nothing and once per order
+            List<String> rejected = skuShardDispatcher.apply("placed", order.getOrderId(), deltasBySku(items, -1));
+            consumerMetrics.recordApplied(record.topic(), System.nanoTime() - start);
+            consumerMetrics.recordOrderApplied(record);
+            if (!rejected.isEmpty()) {
+                consumerMetrics.recordRejectedItems(record.topic(), rejected.size());
+                log.warn("⚠️  Order ID: {}, inventory not reduced, not enough stock (or unknown SKU) for {}", order.getOrderId(), rejected);
             }
-
-        } catch (JsonProcessingException e) {
-            log.error("❌ Error parsing ORDER_PLACED event: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("❌ Unexpected error processing ORDER_PLACED event: {}", e.getMessage(), e);
+            // Stock is now reduced in the database (or the order was rejected), drop the holds
+            releaseReservation(order, "confirmed");
+        } else {
+            log.warn("⚠️  No order items found in ORDER_PLACED event for order ID: {}", order.getOrderId());
         }
+        acknowledgment.acknowledge();
     }
 
     @KafkaListener(topics = ORDER_CANCELLED_TOPIC)
-    public void consumeOrderCancelled(String message) {
-
-        log.info("=== Kafka Consumer: Received ORDER_CANCELLED event ===");
-        log.info("Raw message: {}", message);
-
-        try {
-            OrderMessage order =
-                    objectMapper.readValue(message, OrderMessage.class);
+    public void consumeOrderCancelled(ConsumerRecord<String, OrderMessage> record, Acknowledgment acknowledgment) {
+        consumerMetrics.recordReceived(record);
+        OrderMessage order = record.value();
+        List<OrderItemDto> items = order.getOrderItems();
+        log.debug("Received ORDER_CANCELLED event for order ID: {} ({} items)", order.getOrderId(),
+            items != null ? items.size() : 0);
+
+        if (items != null && !items.isEmpty()) {
+            long start = System.nanoTime();
+            List<String> rejected = skuShardDispatcher.apply("cancelled", order.getOrderId(), deltasBySku(items, 1));
+            consumerMetrics.recordApplied(record.topic(), System.nanoTime() - start);
+            consumerMetrics.recordOrderApplied(record);
+            if (!rejected.isEmpty()) {
+                consumerMetrics.recordRejectedItems(record.topic(), rejected.size());
+                log.warn("⚠️  Order ID: {}, unknown SKUs, inventory not restored for {}", order.getOrderId(), rejected);
+            }
+            releaseReservation(order, "cancelled");
+        } else {
+            log.warn("⚠️  No order items found in ORDER_CANCELLED event for order ID: {}", order.getOrderId());
+        }
+        acknowledgment.acknowledge();
+    }
 
-            log.info("Parsed order successfully. Order Items: {}",
-                order.getOrderItems() != null ? order.getOrderItems().size() : 0);
+    // The reservation may be shared by a batch of orders, only this order's lines are released (once per order)
+    private void releaseReservation(OrderMessage order, String reason) {
+        if (order.getReservationId() != null) {
+            reservationService.release(order.getReservationId(), releaseKey(order),
+                    deltasBySku(order.getOrderItems(), 1), reason);
+        }
+    }
 
-            List<OrderItemDto> items = order.getOrderItems();
+    static String releaseKey(OrderMessage order) {
+        return order.getOrderId() != null ? "order:" + order.getOrderId() : null;
+    }
 
-            if (items != null && !items.isEmpty()) {
-                log.info("Processing {} items for inventory restoration", items.size());
-                items.forEach(item -> {
-                    log.info("Restoring inventory - SKU: {}, Quantity: {}",
-                        item.getSkuCode(), item.getQuantity());
-                    try {
-                        productService.increaseProductQuantity(
-                                item.getSkuCode(),
-                                item.getQuantity()
-                        );
-                        log.info("✅ Successfully restored inventory for SKU: {}", item.getSkuCode());
-                    } catch (Exception e) {
-                        log.error("❌ Failed to restore inventory for SKU: {}. Error: {}",
-                            item.getSkuCode(), e.getMessage(), e);
-                    }
-                });
-                log.info("=== ORDER_CANCELLED event processing completed ===");
-            } else {
-                log.warn("⚠️  No order items found in the message!");
+    // Sums item quantities per SKU (an order may list the same SKU more than once), signed by direction
+    private static Map<String, Integer> deltasBySku(List<OrderItemDto> items, int sign) {
+        Map<String, Integer> deltas = new HashMap<>();
+        for (OrderItemDto item : items) {
+            if (item.getSkuCode() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a skuCode and a positive quantity");
             }
-
-        } catch (JsonProcessingException e) {
-            log.error("❌ Error parsing ORDER_CANCELLED event: {}", e.getMessage(), e);
-        } catch (Exception e) {
-            log.error("❌ Unexpected error processing ORDER_CANCELLED event: {}", e.getMessage(), e);
+            deltas.merge(item.getSkuCode(), sign * item.getQuantity(), Integer::sum);
         }
+        return deltas;
     }
 }
\ No newline at end of file
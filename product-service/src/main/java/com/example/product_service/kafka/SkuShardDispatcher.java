@@ -0,0 +1,172 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.exception.InsufficientStockException;
+import com.example.product_service.service.ProcessedEventService;
+import com.example.product_service.service.ProductService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies the stock changes of an order event on a fixed set of single-threaded shards.
+ *
+ * A SKU always maps to the same shard (hash of skuCode), so changes to one SKU are applied
+ * one after another in arrival order, even when several listener threads dispatch at once,
+ * while orders on different shards are applied in parallel.
+ * An order is applied all-or-nothing in one transaction. When its SKUs span several shards, every
+ * one of them is held at the order's place in its queue while the transaction runs on the first;
+ * orders are enqueued on all their shards under one lock, so the shard queues agree on their
+ * relative order and two such orders can't wait on each other.
+ * apply() returns only when every shard involved has finished, so the listener, and with it
+ * the offset commit, never gets ahead of the database.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.consumer.mode", havingValue = "record", matchIfMissing = true)
+public class SkuShardDispatcher {
+
+    private final ProductService productService;
+    private final ProcessedEventService processedEventService;
+    private final ConsumerMetrics consumerMetrics;
+    private final List<ThreadPoolExecutor> shards;
+    private final List<Timer> shardTimers;
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+
+    public SkuShardDispatcher(ProductService productService,
+                              ProcessedEventService processedEventService,
+                              ConsumerMetrics consumerMetrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${product.consumer.dispatcher.shards:8}") int shardCount) {
+        this.productService = productService;
+        this.processedEventService = processedEventService;
+        this.consumerMetrics = consumerMetrics;
+        this.shards = new ArrayList<>(shardCount);
+        this.shardTimers = new ArrayList<>(shardCount);
+
+        for (int i = 0; i < shardCount; i++) {
+            String shard = String.valueOf(i);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "inventory-shard-" + shard);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            shards.add(executor);
+            shardTimers.add(Timer.builder("inventory.dispatcher.process.time")
+                    .tag("shard", shard)
+                    .register(meterRegistry));
+            Gauge.builder("inventory.dispatcher.queue.depth", executor, e -> e.getQueue().size())
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Applies the net stock changes of one order event, all-or-nothing: if any SKU is unknown
+     * or short on stock, none of the order's changes are applied.
+     * SKUs this event already changed (the record is a redelivery) are skipped; events without
+     * an order id can't be recognised again and are always applied.
+     *
+     * @param eventType "placed" or "cancelled".
+     * @param deltasBySku Net quantity change per skuCode (negative reduces stock).
+     * @return SKUs that could not be applied (unknown SKU or not enough stock), empty if the order was applied.
+     */
+    public List<String> apply(String eventType, Long orderId, Map<String, Integer> deltasBySku) {
+        TreeSet<Integer> involved = new TreeSet<>();
+        deltasBySku.keySet().forEach(skuCode -> involved.add(shardOf(skuCode)));
+        if (involved.isEmpty()) {
+            return List.of();
+        }
+        int runOn = involved.first();
+        Timer timer = shardTimers.get(runOn);
+
+        // The other shards wait at the order's place in their queues until the transaction has finished
+        CountDownLatch arrived = new CountDownLatch(involved.size());
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        enqueueLock.lock();
+        try {
+            for (int shard : involved) {
+                shards.get(shard).execute(() -> {
+                    arrived.countDown();
+                    if (shard != runOn) {
+                        result.exceptionally(ex -> null).join();
+                        return;
+                    }
+                    try {
+                        arrived.await();
+                        result.complete(timer.record(() -> applyOnce(eventType, orderId, deltasBySku)));
+                    } catch (Throwable ex) {
+                        result.completeExceptionally(ex);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            // Shards already holding the order's place must not wait for a transaction that won't run
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            enqueueLock.unlock();
+        }
+        return result.join();
+    }
+
+    // Runs while every shard of the order is held, so no other change to these SKUs can slip in between check and apply
+    private List<String> applyOnce(String eventType, Long orderId, Map<String, Integer> deltas) {
+        if (orderId == null) {
+            return applyAllOrNothing(deltas, List.of());
+        }
+        Map<String, Integer> pendingDeltas = new HashMap<>();
+        List<String> eventKeys = new ArrayList<>(deltas.size());
+        deltas.forEach((skuCode, delta) -> {
+            String eventKey = ProcessedEventService.eventKey(eventType, orderId, skuCode);
+            if (!processedEventService.isProcessed(eventKey)) {
+                pendingDeltas.put(skuCode, delta);
+                eventKeys.add(eventKey);
+            }
+        });
+        if (pendingDeltas.isEmpty()) {
+            log.debug("'{}' event for order ID: {} already applied, skipping", eventType, orderId);
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<String> rejected = applyAllOrNothing(pendingDeltas, eventKeys);
+        consumerMetrics.recordItemsApplied(eventType, System.nanoTime() - start, pendingDeltas.size());
+        return rejected;
+    }
+
+    private List<String> applyAllOrNothing(Map<String, Integer> deltas, List<String> eventKeys) {
+        try {
+            productService.applyOrderDeltas(deltas, eventKeys);
+            return List.of();
+        } catch (InsufficientStockException e) {
+            return e.getSkuCodes();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shards.forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    private int shardOf(String skuCode) {
+        return Math.floorMod(skuCode.hashCode(), shards.size());
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.product_service.kafka.codec;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary form of order_placed / order_cancelled events, selected by the event-format record header.
+ *
+ * Layout (version 1): a version byte, then id, totalPrice, orderDate, reservationId, and the item count
+ * followed by each item as a length-prefixed block (id, skuCode, productName, quantity, price).
+ * Integers are zig-zag varints, strings are UTF-8 with a varint length, and null is a 0 length or presence byte.
+ *
+ * Evolution: new fields are only ever appended, at the end of the order or of an item block.
+ * Readers skip bytes they don't know, so older consumers keep working with newer producers.
+ * Mirrors order-service's OrderEventCodec for OrderDto, the two must be changed together.
+ * OrderMessage has no totalPrice / orderDate, they are skipped when decoding and written as null.
+ */
+public final class OrderEventCodec {
+
+    public static final String FORMAT_HEADER = "event-format";
+    public static final String BINARY_V1 = "binary-v1";
+    public static final String JSON = "json";
+
+    static final byte VERSION_1 = 1;
+
+    // Per-thread scratch buffers, so encoding allocates only the returned array
+    private static final ThreadLocal<Writer> ORDER_WRITER = ThreadLocal.withInitial(Writer::new);
+    private static final ThreadLocal<Writer> ITEM_WRITER = ThreadLocal.withInitial(Writer::new);
+
+    private OrderEventCodec() {
+    }
+
+    public static byte[] encode(OrderMessage order) {
+        Writer out = ORDER_WRITER.get().reset();
+        Writer item = ITEM_WRITER.get();
+
+        out.writeByte(VERSION_1);
+        out.writeNullableLong(order.getOrderId());
+        out.writeDecimal(null);
+        out.writeDateTime(null);
+        out.writeString(order.getReservationId());
+
+        List<OrderItemDto> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+        out.writeVarLong(items.size());
+        for (OrderItemDto orderItem : items) {
+            item.reset();
+            item.writeNullableLong(orderItem.getId());
+            item.writeString(orderItem.getSkuCode());
+            item.writeString(orderItem.getProductName());
+            item.writeVarLong(orderItem.getQuantity());
+            item.writeDecimal(orderItem.getPrice());
+            out.writeVarLong(item.size);
+            out.writeBytes(item.buffer, 0, item.size);
+        }
+        return out.toByteArray();
+    }
+
+    public static OrderMessage decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    public static OrderMessage decode(ByteBuffer data) {
+        Reader in = new Reader(data);
+        byte version = in.readByte();
+        if (version < VERSION_1) {
+            throw new IllegalArgumentException("Unsupported order event version " + version);
+        }
+
+        OrderMessage order = new OrderMessage();
+        order.setOrderId(in.readNullableLong());
+        in.readDecimal();   // totalPrice
+        in.readDateTime();  // orderDate
+        order.setReservationId(in.readString());
+
+        int count = (int) in.readVarLong();
+        List<OrderItemDto> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = (int) in.readVarLong();
+            int end = data.position() + length;
+            OrderItemDto item = new OrderItemDto();
+            item.setId(in.readNullableLong());
+            item.setSkuCode(in.readString());
+            item.setProductName(in.readString());
+            item.setQuantity((int) in.readVarLong());
+            item.setPrice(in.readDecimal());
+            // Skip item fields added by newer versions
+            data.position(end);
+            items.add(item);
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+
+    static final class Writer {
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        Writer reset() {
+            size = 0;
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((zigZag & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            buffer[size++] = (byte) zigZag;
+        }
+
+        void writeNullableLong(Long value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                writeVarLong(value);
+            }
+        }
+
+        // Length + 1, so 0 means null
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void writeDecimal(BigDecimal value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarLong(unscaled.length + 1L);
+            writeBytes(unscaled, 0, unscaled.length);
+            writeVarLong(value.scale());
+        }
+
+        void writeDateTime(LocalDateTime value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+                writeVarLong(value.getNano());
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    static final class Reader {
+        private final ByteBuffer data;
+
+        Reader(ByteBuffer data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            return data.get();
+        }
+
+        long readVarLong() {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed varint in order event");
+                }
+                b = data.get();
+                raw |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        Long readNullableLong() {
+            return data.get() == 0 ? null : readVarLong();
+        }
+
+        String readString() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value;
+            if (data.hasArray()) {
+                value = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+                data.position(data.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                data.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        BigDecimal readDecimal() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            byte[] unscaled = new byte[length];
+            data.get(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), (int) readVarLong());
+        }
+
+        LocalDateTime readDateTime() {
+            if (data.get() == 0) {
+                return null;
+            }
+            long epochSecond = readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.product_service.kafka.codec;
+
+import com.example.product_service.dto.OrderMessage;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value deserializer for order_placed / order_cancelled. Decodes straight from the record bytes,
+ * with OrderEventCodec when the event-format header says binary-v1 and with Jackson otherwise
+ * (JSON events, including ones sent before the header existed).
+ * Configured as the delegate of an ErrorHandlingDeserializer, so a bad record is skipped instead of
+ * blocking the partition.
+ */
+public class OrderMessageDeserializer implements Deserializer<OrderMessage> {
+
+    // Order-service may add fields product-service doesn't know yet
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Consumer config key of the application's MeterRegistry. Kafka creates deserializers itself,
+     * so the registry is handed over through the consumer configs (see KafkaConsumerConfig).
+     * Without it, e.g. when created directly in a test or benchmark, parse time isn't recorded.
+     */
+    public static final String METER_REGISTRY_CONFIG = "product.consumer.meter-registry";
+
+    private Timer binaryParseTimer;
+    private Timer jsonParseTimer;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (configs.get(METER_REGISTRY_CONFIG) instanceof MeterRegistry meterRegistry) {
+            binaryParseTimer = parseTimer(meterRegistry, OrderEventCodec.BINARY_V1);
+            jsonParseTimer = parseTimer(meterRegistry, OrderEventCodec.JSON);
+        }
+    }
+
+    @Override
+    public OrderMessage deserialize(String topic, byte[] data) {
+        return deserializeJson(data);
+    }
+
+    @Override
+    public OrderMessage deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (isBinary(headers)) {
+            return decodeBinary(data);
+        }
+        return deserializeJson(data);
+    }
+
+    @Override
+    public OrderMessage deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (isBinary(headers)) {
+            long start = System.nanoTime();
+            try {
+                return OrderEventCodec.decode(data);
+            } finally {
+                record(binaryParseTimer, start);
+            }
+        }
+        if (data.hasArray()) {
+            return deserializeJson(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return deserializeJson(bytes);
+    }
+
+    private static boolean isBinary(Headers headers) {
+        Header format = headers != null ? headers.lastHeader(OrderEventCodec.FORMAT_HEADER) : null;
+        return format != null && OrderEventCodec.BINARY_V1.equals(new String(format.value(), StandardCharsets.UTF_8));
+    }
+
+    private OrderMessage decodeBinary(byte[] data) {
+        long start = System.nanoTime();
+        try {
+            return OrderEventCodec.decode(data);
+        } finally {
+            record(binaryParseTimer, start);
+        }
+    }
+
+    private OrderMessage deserializeJson(byte[] data) {
+        return data == null ? null : deserializeJson(data, 0, data.length);
+    }
+
+    private OrderMessage deserializeJson(byte[] data, int offset, int length) {
+        long start = System.nanoTime();
+        try {
+            return objectMapper.readValue(data, offset, length, OrderMessage.class);
+        } catch (IOException e) {
+            throw new SerializationException("Unable to parse order event", e);
+        } finally {
+            record(jsonParseTimer, start);
+        }
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer parseTimer(MeterRegistry meterRegistry, String format) {
+        return Timer.builder("inventory.consumer.parse.time")
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+}
@@ -2,10 +2,42 @@ package com.example.product_service.repository;
 
 import com.example.product_service.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Optional<Product> findBySkuCode(String skuCode);
 
+    // Batched lookup: one "sku_code IN (...)" query for a whole basket
+    List<Product> findBySkuCodeIn(Collection<String> skuCodes);
+
+    boolean existsBySkuCode(String skuCode);
+
+    // Conditional decrement done by the database in one statement.
+    // Returns 1 if the stock was reduced, 0 if the SKU is unknown or has less than quantity left.
+    @Modifying
+    @Query("update Product p set p.quantity = p.quantity - :quantity, p.stockVersion = p.stockVersion + 1,"
+            + " p.stockUpdatedAt = :updatedAt where p.skuCode = :skuCode and p.quantity >= :quantity")
+    int decrementQuantity(@Param("skuCode") String skuCode, @Param("quantity") int quantity,
+                          @Param("updatedAt") Instant updatedAt);
+
+    // Returns 1 if the stock was increased, 0 if the SKU is unknown
+    @Modifying
+    @Query("update Product p set p.quantity = p.quantity + :quantity, p.stockVersion = p.stockVersion + 1,"
+            + " p.stockUpdatedAt = :updatedAt where p.skuCode = :skuCode")
+    int incrementQuantity(@Param("skuCode") String skuCode, @Param("quantity") int quantity,
+                          @Param("updatedAt") Instant updatedAt);
+
+    // Sets the stock (product update), bumping the version only if it changes.
+    // Returns 1 if the stock was changed, 0 if it already had this quantity or the product is unknown
+    @Modifying
+    @Query("update Product p set p.quantity = :quantity, p.stockVersion = p.stockVersion + 1,"
+            + " p.stockUpdatedAt = :updatedAt where p.id = :id and p.quantity <> :quantity")
+    int setQuantity(@Param("id") Long id, @Param("quantity") int quantity, @Param("updatedAt") Instant updatedAt);
 }
@@ -0,0 +1,280 @@
+package com.example.product_service.reservation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * In-memory ledger of time-limited stock holds.
+ *
+ * Held quantities are kept per SKU in lock stripes chosen by SKU hash, so reservations for
+ * different SKUs rarely contend on the same lock. A reservation spanning several SKUs locks
+ * their stripes in ascending index order, which keeps concurrent reservations deadlock-free.
+ * Plain ReentrantLocks (not synchronized) keep virtual threads from pinning while they wait.
+ *
+ * The ledger also keeps the committed stock per SKU, so no database read happens under the locks.
+ * A SKU's stock is loaded on its first reservation, then kept current by updateStock after every
+ * committed stock change (InventoryEventPublisher), and reloaded once older than stockRefreshMs
+ * to bound drift from changes made outside this instance. Stock carries products.stock_version,
+ * a load or update never replaces a newer version.
+ */
+@Component
+public class ReservationLedger {
+
+    public record Reservation(String id, Map<String, Integer> quantities, long expiresAtMillis) {
+    }
+
+    // Committed stock of a SKU at a stock_version
+    public record Stock(int quantity, long version) {
+    }
+
+    // What a reservation still holds, and the keys of the partial releases already applied to it.
+    // Only changed inside reservations.compute for its id.
+    private record Remaining(Map<String, Integer> quantities, Set<String> releasedKeys, long placedAtMillis,
+                             long expiresAtMillis) {
+    }
+
+    private record StockEntry(int quantity, long version, long loadedAtMillis) {
+    }
+
+    // Version of a SKU the database doesn't know, any stock stored for it later replaces it
+    private static final long UNKNOWN_VERSION = -1;
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Integer> heldBySku = new HashMap<>();
+    }
+
+    private final Stripe[] stripes;
+    private final Map<String, Remaining> reservations = new ConcurrentHashMap<>();
+    private final Map<String, StockEntry> stockBySku = new ConcurrentHashMap<>();
+    private final long stockRefreshMs;
+
+    public ReservationLedger(@Value("${product.reservation.stripes:64}") int stripeCount,
+                             @Value("${product.reservation.stock-refresh-ms:5000}") long stockRefreshMs) {
+        this.stockRefreshMs = stockRefreshMs;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Places holds for every requested SKU whose stock, minus what is already held, covers the quantity.
+     * SKUs that can't be covered are left out of the reservation, unless partial holds are asked for.
+     *
+     * Stock of SKUs the ledger doesn't have yet (or only an old copy of) is loaded before the stripes are
+     * locked; under the locks the stock and the holds are both in memory, so no other reservation for the
+     * SKUs can be placed between reading the stock and checking it against the holds.
+     *
+     * @param requested Quantity to hold per skuCode, every quantity positive.
+     * @param stockLoader Reads current stock per skuCode, unknown SKUs are absent from the result.
+     * @param partial Also hold the free stock of SKUs that can't cover the full quantity,
+     *                the reservation then records the smaller quantity for them.
+     * @return The reservation, with only the SKUs that were actually held.
+     */
+    public Reservation reserve(Map<String, Integer> requested, Function<Collection<String>, Map<String, Stock>> stockLoader,
+                               long ttlMs, boolean partial) {
+        requested.forEach((skuCode, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Quantity for " + skuCode + " must be positive, was " + quantity);
+            }
+        });
+        loadStock(requested.keySet(), stockLoader);
+        Map<String, Integer> held = new HashMap<>();
+
+        List<Stripe> locked = lockStripes(requested.keySet());
+        try {
+            requested.forEach((skuCode, quantity) -> {
+                Map<String, Integer> heldBySku = stripeFor(skuCode).heldBySku;
+                StockEntry stock = stockBySku.get(skuCode);
+                int free = (stock != null ? stock.quantity() : 0) - heldBySku.getOrDefault(skuCode, 0);
+                int hold = free >= quantity ? quantity : partial ? Math.max(free, 0) : 0;
+                if (hold > 0) {
+                    heldBySku.merge(skuCode, hold, Integer::sum);
+                    held.put(skuCode, hold);
+                }
+            });
+        } finally {
+            locked.forEach(stripe -> stripe.lock.unlock());
+        }
+
+        long now = System.currentTimeMillis();
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), held, now + ttlMs);
+        if (!held.isEmpty()) {
+            reservations.put(reservation.id(),
+                    new Remaining(new HashMap<>(held), new HashSet<>(), now, reservation.expiresAtMillis()));
+        }
+        return reservation;
+    }
+
+    /**
+     * Stores a SKU's committed stock, unless the ledger already has the same or a newer version.
+     */
+    public void updateStock(String skuCode, int quantity, long version) {
+        StockEntry update = new StockEntry(quantity, version, System.currentTimeMillis());
+        stockBySku.merge(skuCode, update, (current, next) -> next.version() >= current.version() ? next : current);
+    }
+
+    // The SKU was deleted, a later reservation loads it again (and finds nothing)
+    public void removeStock(String skuCode) {
+        stockBySku.remove(skuCode);
+    }
+
+    // Whether the ledger keeps the SKU's stock, only those need updating after a change
+    public boolean tracksStock(String skuCode) {
+        return stockBySku.containsKey(skuCode);
+    }
+
+    // Loads the SKUs the ledger doesn't have or last loaded more than stockRefreshMs ago, outside the stripe locks
+    private void loadStock(Collection<String> skuCodes, Function<Collection<String>, Map<String, Stock>> stockLoader) {
+        long now = System.currentTimeMillis();
+        List<String> missing = new ArrayList<>();
+        for (String skuCode : skuCodes) {
+            StockEntry entry = stockBySku.get(skuCode);
+            if (entry == null || now - entry.loadedAtMillis() > stockRefreshMs) {
+                missing.add(skuCode);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<String, Stock> loaded = stockLoader.apply(missing);
+        for (String skuCode : missing) {
+            Stock stock = loaded.get(skuCode);
+            if (stock != null) {
+                updateStock(skuCode, stock.quantity(), stock.version());
+            } else {
+                updateStock(skuCode, 0, UNKNOWN_VERSION);
+            }
+        }
+    }
+
+    /**
+     * Drops a reservation and its holds.
+     *
+     * @return false if the reservation was unknown, already released or expired.
+     */
+    public boolean release(String reservationId) {
+        Remaining remaining = reservations.remove(reservationId);
+        if (remaining == null) {
+            return false;
+        }
+        releaseHolds(remaining.quantities());
+        return true;
+    }
+
+    /**
+     * Releases part of a reservation, e.g. the lines of one order when several orders share it.
+     * The reservation is dropped once nothing is left held.
+     *
+     * @param releaseKey Identifies this release (e.g. the order id), a key already applied is ignored so
+     *                   redelivered events don't release another order's holds. Null to always apply.
+     * @param quantities Quantity per skuCode to release, capped at what the reservation still holds.
+     * @return false if the reservation was unknown, already released or expired.
+     */
+    public boolean release(String reservationId, String releaseKey, Map<String, Integer> quantities) {
+        Map<String, Integer> released = new HashMap<>();
+        AtomicBoolean known = new AtomicBoolean();
+        reservations.computeIfPresent(reservationId, (id, remaining) -> {
+            known.set(true);
+            if (releaseKey != null && !remaining.releasedKeys().add(releaseKey)) {
+                return remaining;
+            }
+            quantities.forEach((skuCode, quantity) -> {
+                int held = remaining.quantities().getOrDefault(skuCode, 0);
+                int release = Math.min(held, quantity);
+                if (release <= 0) {
+                    return;
+                }
+                released.put(skuCode, release);
+                if (held > release) {
+                    remaining.quantities().put(skuCode, held - release);
+                } else {
+                    remaining.quantities().remove(skuCode);
+                }
+            });
+            return remaining.quantities().isEmpty() ? null : remaining;
+        });
+        if (!released.isEmpty()) {
+            releaseHolds(released);
+        }
+        return known.get();
+    }
+
+    /**
+     * Releases every reservation whose time limit has passed.
+     *
+     * @return Number of reservations that expired.
+     */
+    public int expire(long nowMillis) {
+        return expire(nowMillis, Long.MAX_VALUE);
+    }
+
+    /**
+     * Releases every reservation whose time limit has passed and that was placed before placedBeforeMillis.
+     * Later ones may still have their order's event on the way, they stay held.
+     *
+     * @return Number of reservations that expired.
+     */
+    public int expire(long nowMillis, long placedBeforeMillis) {
+        int expired = 0;
+        for (Map.Entry<String, Remaining> entry : reservations.entrySet()) {
+            Remaining remaining = entry.getValue();
+            if (remaining.expiresAtMillis() <= nowMillis && remaining.placedAtMillis() < placedBeforeMillis
+                    && reservations.remove(entry.getKey(), remaining)) {
+                releaseHolds(remaining.quantities());
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    public int activeReservations() {
+        return reservations.size();
+    }
+
+    private void releaseHolds(Map<String, Integer> quantities) {
+        List<Stripe> locked = lockStripes(quantities.keySet());
+        try {
+            quantities.forEach((skuCode, quantity) ->
+                    stripeFor(skuCode).heldBySku.computeIfPresent(skuCode,
+                            (sku, held) -> held > quantity ? held - quantity : null));
+        } finally {
+            locked.forEach(stripe -> stripe.lock.unlock());
+        }
+    }
+
+    private List<Stripe> lockStripes(Iterable<String> skuCodes) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        skuCodes.forEach(skuCode -> indexes.add(stripeIndex(skuCode)));
+
+        List<Stripe> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock.lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    private Stripe stripeFor(String skuCode) {
+        return stripes[stripeIndex(skuCode)];
+    }
+
+    private int stripeIndex(String skuCode) {
+        return Math.floorMod(skuCode.hashCode(), stripes.length);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.product_service.service;
+
+import com.example.product_service.idempotency.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers which order event stock changes were applied, so a replayed record
+ * (after a rebalance or a failed commit) doesn't change stock twice.
+ *
+ * Keys are "<eventType>:<orderId>:<skuCode>", stored in the transaction that applies the stock change
+ * (one per order in record mode; in batch mode one per poll, plus one per order taken out of the netting).
+ * The processed_events table is the source of truth; a Bloom filter of the recent keys
+ * answers "definitely new" for almost every record without touching the database.
+ * Keys are kept for product.idempotency.retention-hours, which must exceed the topics' retention.
+ */
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory")
+public class ProcessedEventService {
+
+    private static final String INSERT_SQL = "INSERT INTO processed_events (event_key, processed_at) VALUES (?, ?)";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM processed_events WHERE event_key = ?";
+    private static final String RECENT_SQL = "SELECT event_key FROM processed_events WHERE processed_at >= ?";
+    private static final String PURGE_SQL = "DELETE FROM processed_events WHERE processed_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter duplicateCounter;
+    private final Counter falsePositiveCounter;
+
+    @Value("${product.idempotency.filter.expected-keys:1000000}")
+    private long expectedKeys;
+
+    @Value("${product.idempotency.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${product.idempotency.retention-hours:168}")
+    private long retentionHours;
+
+    // Null until loaded, every check then goes to the database
+    private volatile BloomFilter recentKeys;
+    // Filter being rebuilt by purge(), receives new keys too so none are missed during the swap
+    private volatile BloomFilter nextKeys;
+
+    public ProcessedEventService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.duplicateCounter = meterRegistry.counter("inventory.events.duplicates");
+        this.falsePositiveCounter = meterRegistry.counter("inventory.events.filter.false.positives");
+    }
+
+    // Runs before the Kafka listeners start
+    @PostConstruct
+    public void loadRecentKeys() {
+        try {
+            recentKeys = loadFilter();
+        } catch (Exception e) {
+            log.warn("Could not load processed event keys, checking the database for every event: {}", e.getMessage());
+        }
+    }
+
+    public static String eventKey(String eventType, Long orderId, String skuCode) {
+        return eventType + ":" + orderId + ":" + skuCode;
+    }
+
+    /**
+     * @return true if this stock change was already applied.
+     */
+    public boolean isProcessed(String eventKey) {
+        BloomFilter filter = recentKeys;
+        if (filter != null && !filter.mightContain(eventKey)) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(EXISTS_SQL, Integer.class, eventKey);
+        boolean processed = count != null && count > 0;
+        if (processed) {
+            duplicateCounter.increment();
+        } else if (filter != null) {
+            falsePositiveCounter.increment();
+        }
+        return processed;
+    }
+
+    /**
+     * Stores the keys in the caller's transaction. A key that is already stored fails the insert,
+     * rolling the whole stock change back.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void markProcessed(Collection<String> eventKeys) {
+        if (eventKeys.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, eventKeys.stream()
+                .map(key -> new Object[]{key, now})
+                .toList());
+
+        List<String> keys = List.copyOf(eventKeys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(keys);
+            }
+        });
+    }
+
+    // Drops keys past the retention period and rebuilds the filter from what is left
+    @Scheduled(fixedDelayString = "${product.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${product.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.from(cutoff()));
+        nextKeys = new BloomFilter(expectedKeys, falsePositiveRate);
+        try {
+            recentKeys = loadInto(nextKeys);
+        } finally {
+            nextKeys = null;
+        }
+        log.debug("Purged {} processed event keys", purged);
+    }
+
+    private void remember(List<String> keys) {
+        BloomFilter current = recentKeys;
+        BloomFilter next = nextKeys;
+        for (String key : keys) {
+            if (current != null) {
+                current.add(key);
+            }
+            if (next != null) {
+                next.add(key);
+            }
+        }
+    }
+
+    private BloomFilter loadFilter() {
+        return loadInto(new BloomFilter(expectedKeys, falsePositiveRate));
+    }
+
+    private BloomFilter loadInto(BloomFilter filter) {
+        jdbcTemplate.query(RECENT_SQL, rs -> {
+            filter.add(rs.getString(1));
+        }, Timestamp.from(cutoff()));
+        return filter;
+    }
+
+    private Instant cutoff() {
+        return Instant.now().minus(Duration.ofHours(retentionHours));
+    }
+}
@@ -1,17 +1,35 @@
 package com.example.product_service.service;
 
+import com.example.product_service.cache.ProductCache;
 import com.example.product_service.dto.ProductAvailability;
 import com.example.product_service.dto.ProductAvailabilityRequest;
 import com.example.product_service.dto.ProductAvailabilityResponse;
 import com.example.product_service.dto.ProductDto;
 import com.example.product_service.entity.Product;
+import com.example.product_service.exception.InsufficientStockException;
 import com.example.product_service.exception.ResourceNotFoundException;
+import com.example.product_service.kafka.InventoryEventPublisher;
 import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.reservation.ReservationLedger;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 
@@ -21,8 +39,36 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProcessedEventService processedEventService;
+
+    @Autowired
+    private InventoryEventPublisher inventoryEventPublisher;
+
+    // Max number of SKUs per "IN" query when checking availability
+    @Value("${product.availability.chunk-size:500}")
+    private int availabilityChunkSize;
+
+    // A chunk size below 1 would never advance through the SKU list, refuse to start with it
+    @PostConstruct
+    void checkSettings() {
+        if (availabilityChunkSize < 1) {
+            throw new IllegalStateException("product.availability.chunk-size must be at least 1, was " + availabilityChunkSize);
+        }
+    }
+
     public ProductDto getProductById(Long id) {
-      return productRepository.findById(id)
+      return productCache.getById(id)
+              .or(() -> {
+                  long readStartedAt = ProductCache.readStarted();
+                  return productRepository.findById(id).map(product -> cached(product, readStartedAt));
+              })
               .map(this::convertToDTO)
               .orElseThrow(() -> new RuntimeException("Product not found with id " + id));
 
@@ -31,25 +77,48 @@ public class ProductService {
     public ProductDto createProduct(ProductDto productDTO) {
         Product product = convertToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
+        productCache.evictAfterCommit(List.of(savedProduct.getSkuCode()));
+        inventoryEventPublisher.publishAfterCommit(List.of(savedProduct.getSkuCode()));
         return convertToDTO(savedProduct);
     }
 
+    // Stock columns aren't written by the entity (see Product), a new quantity is set in SQL with its version bump,
+    // in the same transaction and row lock as the Kafka consumers' decrements
+    @Transactional
     public ProductDto updateProduct(Long id, ProductDto productDTO) {
         Product existingProduct= productRepository.findById(id).orElseThrow(()-> new RuntimeException("Product not found with id "+id));
         existingProduct.setName(productDTO.getName());
         existingProduct.setDescription(productDTO.getDescription());
-        existingProduct.setQuantity(productDTO.getQuantity());
         existingProduct.setPrice(productDTO.getPrice());
         Product updatedProduct = productRepository.save(existingProduct);
+        if (productRepository.setQuantity(id, productDTO.getQuantity(), Instant.now()) > 0) {
+            updatedProduct.setQuantity(productDTO.getQuantity());
+            inventoryEventPublisher.publishAfterCommit(List.of(updatedProduct.getSkuCode()));
+        }
+        productCache.evictAfterCommit(List.of(updatedProduct.getSkuCode()));
         return convertToDTO(updatedProduct);
     }
 
+    @Transactional
+    public void deleteProduct(Long id) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + id));
+        productRepository.delete(product);
+        productCache.evictAfterCommit(List.of(product.getSkuCode()));
+        inventoryEventPublisher.publishDeletedAfterCommit(product.getSkuCode());
+    }
+
+    private Product cached(Product product, long readStartedAt) {
+        productCache.put(product, readStartedAt);
+        return product;
+    }
+
     private ProductDto convertToDTO(Product product) {
         return new ProductDto(product.getId(), product.getName(), product.getDescription(), product.getSkuCode(), product.getPrice(), product.getQuantity());
     }
 
     private Product convertToEntity(ProductDto productDTO) {
-        return new Product(productDTO.getId(), productDTO.getName(), productDTO.getDescription(), productDTO.getSkuCode(), productDTO.getPrice(), productDTO.getQuantity());
+        return new Product(productDTO.getId(), productDTO.getName(), productDTO.getDescription(), productDTO.getSkuCode(), productDTO.getPrice(), productDTO.getQuantity(), 0L, Instant.now());
     }
 
     public ProductAvailabilityResponse checkProductAvailability(List<ProductAvailabilityRequest> products) {
@@ -57,19 +126,25 @@ public class ProductService {
         // Create response object normally (without builder)
         ProductAvailabilityResponse response = new ProductAvailabilityResponse();
 
+        // Fetch every requested SKU up front and index it by skuCode,
+        // instead of one findBySkuCode round trip per requested item
+        Map<String, Product> productsBySku = findProductsBySkuCodes(products.stream()
+                .map(ProductAvailabilityRequest::getSkuCode)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
         // Map each ProductAvailabilityRequest to ProductAvailability
         List<ProductAvailability> availabilityList = products.stream()
                 .map(productRequest -> {
-                    // Fetch product from database by SKU
-                    Product product = productRepository.findBySkuCode(productRequest.getSkuCode())
-                            .orElseThrow(() -> new ResourceNotFoundException(
-                                    "Product not found with SKU code " + productRequest.getSkuCode()));
+                    Product product = productsBySku.get(productRequest.getSkuCode());
 
-                    // Check if product quantity is enough
-                    boolean available = product.getQuantity() >= productRequest.getQuantity();
+                    // Unknown SKU is reported as unavailable for this item only,
+                    // the rest of the basket is still answered
+                    boolean available = product != null
+                            && product.getQuantity() >= productRequest.getQuantity();
 
-                    // Return a ProductAvailability object
-                    return new ProductAvailability(product.getSkuCode(), available);
+                    // Return a ProductAvailability object, with the stock so the caller can fill partially
+                    return new ProductAvailability(productRequest.getSkuCode(), available,
+                            product != null ? product.getQuantity() : 0);
                 })
                 .collect(Collectors.toList());
 
@@ -79,33 +154,227 @@ public class ProductService {
         return response;
     }
 
+    /**
+     * Reads committed stock straight from the database, never from the cache
+     * (the reservation ledger loads its stock from it).
+     *
+     * @return Current stock and stock version per skuCode; unknown SKUs are absent from the map.
+     */
+    public Map<String, ReservationLedger.Stock> getStockLevels(Collection<String> skuCodes) {
+        List<String> skuList = List.copyOf(skuCodes);
+        Map<String, ReservationLedger.Stock> stock = new HashMap<>(skuList.size() * 2);
+        for (int from = 0; from < skuList.size(); from += availabilityChunkSize) {
+            int to = Math.min(from + availabilityChunkSize, skuList.size());
+            for (Product product : productRepository.findBySkuCodeIn(skuList.subList(from, to))) {
+                stock.put(product.getSkuCode(), new ReservationLedger.Stock(product.getQuantity(), product.getStockVersion()));
+            }
+        }
+        return stock;
+    }
+
+    /**
+     * Resolves products for the given SKU codes from the cache, loading the misses with "IN" queries
+     * split into chunks so very large baskets don't build an unbounded IN list.
+     */
+    private Map<String, Product> findProductsBySkuCodes(Collection<String> skuCodes) {
+        Map<String, Product> productsBySku = new HashMap<>(skuCodes.size() * 2);
+        List<String> skuList = new ArrayList<>(skuCodes.size());
+        for (String skuCode : skuCodes) {
+            productCache.getBySku(skuCode).ifPresentOrElse(
+                    product -> productsBySku.put(skuCode, product),
+                    () -> skuList.add(skuCode));
+        }
+
+        for (int from = 0; from < skuList.size(); from += availabilityChunkSize) {
+            int to = Math.min(from + availabilityChunkSize, skuList.size());
+            long readStartedAt = ProductCache.readStarted();
+            for (Product product : productRepository.findBySkuCodeIn(skuList.subList(from, to))) {
+                productsBySku.put(product.getSkuCode(), cached(product, readStartedAt));
+            }
+        }
+        return productsBySku;
+    }
+
 
 
     /* ---------- Inventory updates (Kafka) ---------- */
 
+    private static final String DECREMENT_SQL = "UPDATE products SET quantity = quantity - ?,"
+            + " stock_version = stock_version + 1, stock_updated_at = ? WHERE sku_code = ? AND quantity >= ?";
+
+    private static final String INCREMENT_SQL = "UPDATE products SET quantity = quantity + ?,"
+            + " stock_version = stock_version + 1, stock_updated_at = ? WHERE sku_code = ?";
+
     @Transactional
     public void reduceProductQuantity(String skuCode, int quantity) {
 
-        Product product = productRepository.findBySkuCode(skuCode)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("Product not found"));
+        // Check and decrement in one conditional UPDATE, so concurrent events can't lose updates
+        if (productRepository.decrementQuantity(skuCode, quantity, Instant.now()) == 0) {
+            if (!productRepository.existsBySkuCode(skuCode)) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+            throw new InsufficientStockException(List.of(skuCode));
+        }
+        productCache.evictAfterCommit(List.of(skuCode));
+        inventoryEventPublisher.publishAfterCommit(List.of(skuCode));
+    }
+
+    @Transactional
+    public void increaseProductQuantity(String skuCode, int quantity) {
 
-        if (product.getQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock for " + skuCode);
+        if (productRepository.incrementQuantity(skuCode, quantity, Instant.now()) == 0) {
+            throw new ResourceNotFoundException("Product not found");
         }
+        productCache.evictAfterCommit(List.of(skuCode));
+        inventoryEventPublisher.publishAfterCommit(List.of(skuCode));
+    }
 
-        product.setQuantity(product.getQuantity() - quantity);
-        productRepository.save(product);
+    /**
+     * Reduces stock for all SKUs of an order, all-or-nothing.
+     * Every SKU gets a conditional decrement, sent to the database as one JDBC batch.
+     * If any SKU is unknown or short on stock the whole transaction is rolled back.
+     *
+     * @param quantitiesBySku Quantity to remove per skuCode.
+     * @throws InsufficientStockException listing the SKUs that could not be reduced.
+     */
+    @Transactional
+    public void reduceProductQuantities(Map<String, Integer> quantitiesBySku) {
+        List<String> rejected = applyBatch(DECREMENT_SQL, quantitiesBySku, true);
+        if (!rejected.isEmpty()) {
+            throw new InsufficientStockException(rejected);
+        }
+        productCache.evictAfterCommit(quantitiesBySku.keySet());
+        inventoryEventPublisher.publishAfterCommit(quantitiesBySku.keySet());
     }
 
+    /**
+     * Takes the stock of a pending order for order-service's confirmation saga: all-or-nothing like
+     * reduceProductQuantities, and exactly once, the order's "placed" keys are stored with the decrements.
+     *
+     * @param quantitiesBySku Quantity to remove per skuCode.
+     * @return false if the order's stock was already taken (the event was delivered again).
+     * @throws InsufficientStockException listing the SKUs that are unknown or short on stock, nothing is changed.
+     */
     @Transactional
-    public void increaseProductQuantity(String skuCode, int quantity) {
+    public boolean reserveOrderStock(Long orderId, Map<String, Integer> quantitiesBySku) {
+        List<String> eventKeys = quantitiesBySku.keySet().stream()
+                .map(skuCode -> ProcessedEventService.eventKey("placed", orderId, skuCode))
+                .toList();
+        // Any of them: a key can also have been stored by the plain placed-event path, and the first key
+        // depends on the map's iteration order
+        if (eventKeys.stream().anyMatch(processedEventService::isProcessed)) {
+            return false;
+        }
+        processedEventService.markProcessed(eventKeys);
+        reduceProductQuantities(quantitiesBySku);
+        return true;
+    }
+
+    /**
+     * Restores stock for all SKUs of an order in one JDBC batch, all-or-nothing.
+     *
+     * @param quantitiesBySku Quantity to add back per skuCode.
+     * @throws ResourceNotFoundException if any SKU is unknown.
+     */
+    @Transactional
+    public void increaseProductQuantities(Map<String, Integer> quantitiesBySku) {
+        List<String> rejected = applyBatch(INCREMENT_SQL, quantitiesBySku, false);
+        if (!rejected.isEmpty()) {
+            throw new ResourceNotFoundException("Product not found with SKU code " + String.join(", ", rejected));
+        }
+        productCache.evictAfterCommit(quantitiesBySku.keySet());
+        inventoryEventPublisher.publishAfterCommit(quantitiesBySku.keySet());
+    }
+
+    /**
+     * Applies net stock changes for many SKUs in one transaction.
+     * Negative deltas are conditional decrements, positive deltas are increments.
+     * Unlike reduceProductQuantities this is best-effort per SKU: a rejected SKU doesn't roll back the rest.
+     * Nothing is recorded as processed, event-driven changes go through applyOrderDeltas.
+     *
+     * @param deltasBySku Net quantity change per skuCode.
+     * @return SKUs whose change could not be applied (unknown SKU or not enough stock).
+     */
+    @Transactional
+    public List<String> applyInventoryDeltas(Map<String, Integer> deltasBySku) {
+        return applyDeltas(deltasBySku);
+    }
+
+    /**
+     * Applies the net stock changes of one order (or the netted changes of several, in batch mode),
+     * all-or-nothing like reduceProductQuantities, and records the events' keys as processed in the
+     * same transaction, so the change is applied exactly once even if the event is delivered again.
+     * A rejected change rolls the keys back with it, so they are only stored for changes that were applied.
+     *
+     * @param deltasBySku Net quantity change per skuCode.
+     * @throws InsufficientStockException listing the SKUs that are unknown or short on stock, nothing is changed.
+     */
+    @Transactional
+    public void applyOrderDeltas(Map<String, Integer> deltasBySku, Collection<String> eventKeys) {
+        processedEventService.markProcessed(eventKeys);
+        List<String> rejected = applyDeltas(deltasBySku);
+        if (!rejected.isEmpty()) {
+            throw new InsufficientStockException(rejected);
+        }
+    }
 
-        Product product = productRepository.findBySkuCode(skuCode)
-                .orElseThrow(() ->
-                        new ResourceNotFoundException("Product not found"));
+    private List<String> applyDeltas(Map<String, Integer> deltasBySku) {
+        Map<String, Integer> decrements = new HashMap<>();
+        Map<String, Integer> increments = new HashMap<>();
+        deltasBySku.forEach((skuCode, delta) -> {
+            if (delta < 0) {
+                decrements.put(skuCode, -delta);
+            } else if (delta > 0) {
+                increments.put(skuCode, delta);
+            }
+        });
 
-        product.setQuantity(product.getQuantity() + quantity);
-        productRepository.save(product);
+        List<String> rejected = new ArrayList<>();
+        if (!increments.isEmpty()) {
+            rejected.addAll(applyBatch(INCREMENT_SQL, increments, false));
+        }
+        if (!decrements.isEmpty()) {
+            rejected.addAll(applyBatch(DECREMENT_SQL, decrements, true));
+        }
+
+        Map<String, Integer> applied = new HashMap<>(deltasBySku);
+        rejected.forEach(applied::remove);
+        applied.values().removeIf(delta -> delta == 0);
+        productCache.evictAfterCommit(applied.keySet());
+        inventoryEventPublisher.publishAfterCommit(applied.keySet());
+        return rejected;
+    }
+
+    // Runs one UPDATE per SKU as a single batch and returns the SKUs whose row was not updated.
+    // SKUs are applied in sorted order so concurrent batches always lock rows in the same order.
+    private List<String> applyBatch(String sql, Map<String, Integer> quantitiesBySku, boolean conditional) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(new TreeMap<>(quantitiesBySku).entrySet());
+        Timestamp updatedAt = Timestamp.from(Instant.now());
+
+        int[] updated = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, Integer> entry = entries.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setTimestamp(2, updatedAt);
+                ps.setString(3, entry.getKey());
+                if (conditional) {
+                    ps.setInt(4, entry.getValue());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        List<String> rejected = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected.add(entries.get(i).getKey());
+            }
+        }
+        return rejected;
     }
 }
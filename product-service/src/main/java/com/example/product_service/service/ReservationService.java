@@ -0,0 +1,154 @@
+package com.example.product_service.service;
+
+import com.example.product_service.dto.ProductAvailability;
+import com.example.product_service.dto.ProductAvailabilityRequest;
+import com.example.product_service.dto.ReservationRequest;
+import com.example.product_service.dto.ReservationResponse;
+import com.example.product_service.kafka.ConsumerMetrics;
+import com.example.product_service.reservation.ReservationLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Time-limited stock reservations for Order Service.
+ *
+ * A reservation holds stock in the ReservationLedger until the order_placed event has reduced
+ * the stock in the database (the consumer then releases that order's lines), the order is cancelled, or it expires.
+ * A batch of orders shares one reservation, each order releases only its own lines.
+ *
+ * Expiry only reclaims holds whose order was never saved. The TTL alone can't tell those from holds whose
+ * order's event is still in the outbox or the consumer lag, so a hold also has to be older than the order_placed
+ * events applied on every partition assigned here (ConsumerMetrics.placedEventsAppliedThrough) before it expires.
+ * product.reservation.max-ttl-ms bounds how long a hold can be kept past its TTL that way.
+ */
+@Slf4j
+@Service
+public class ReservationService {
+
+    private final ProductService productService;
+    private final ReservationLedger reservationLedger;
+    private final ConsumerMetrics consumerMetrics;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer reserveTimer;
+    private final Counter expiredCounter;
+
+    // Order-service's event timestamps and this service's hold times come from different clocks
+    private static final long CLOCK_SKEW_MS = 5_000;
+
+    @Value("${product.reservation.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${product.reservation.max-ttl-ms:600000}")
+    private long maxTtlMs;
+
+    public ReservationService(ProductService productService, ReservationLedger reservationLedger,
+                              ConsumerMetrics consumerMetrics, MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.reservationLedger = reservationLedger;
+        this.consumerMetrics = consumerMetrics;
+        this.meterRegistry = meterRegistry;
+
+        this.reserveTimer = meterRegistry.timer("inventory.reservations.time");
+        this.expiredCounter = meterRegistry.counter("inventory.reservations.expired");
+        Gauge.builder("inventory.reservations.active", reservationLedger, ReservationLedger::activeReservations)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no items, or an item has no skuCode or a quantity below 1.
+     */
+    public ReservationResponse reserve(ReservationRequest request) {
+        List<ProductAvailabilityRequest> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("A reservation needs at least one item");
+        }
+        for (ProductAvailabilityRequest item : items) {
+            if (item.getSkuCode() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a skuCode and a positive quantity");
+            }
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Map<String, Integer> requested = new HashMap<>();
+        items.forEach(item -> requested.merge(item.getSkuCode(), item.getQuantity(), Integer::sum));
+
+        // Stock and holds are checked together under the ledger locks of the requested SKUs,
+        // so concurrent reservations can't both count the same free stock
+        ReservationLedger.Reservation reservation =
+                reservationLedger.reserve(requested, productService::getStockLevels, ttlMs, request.isPartial());
+
+        // Quantities are per SKU, the caller splits a partial hold over its lines
+        Map<String, Integer> held = reservation.quantities();
+        List<ProductAvailability> availabilityList = items.stream()
+                .map(item -> {
+                    int heldQuantity = held.getOrDefault(item.getSkuCode(), 0);
+                    return new ProductAvailability(item.getSkuCode(),
+                            heldQuantity >= requested.get(item.getSkuCode()), heldQuantity);
+                })
+                .collect(Collectors.toList());
+
+        boolean full = requested.entrySet().stream()
+                .allMatch(entry -> held.getOrDefault(entry.getKey(), 0) >= entry.getValue());
+        String result = held.isEmpty() ? "rejected" : full ? "full" : "partial";
+        meterRegistry.counter("inventory.reservations.created", "result", result).increment();
+        sample.stop(reserveTimer);
+
+        boolean anyHeld = !held.isEmpty();
+        return ReservationResponse.builder()
+                .reservationId(anyHeld ? reservation.id() : null)
+                .expiresAt(anyHeld ? Instant.ofEpochMilli(reservation.expiresAtMillis()) : null)
+                .productAvailabilityList(availabilityList)
+                .build();
+    }
+
+    /**
+     * Releases a reservation's holds.
+     *
+     * @param reason "confirmed" (stock reduced by order_placed), "cancelled" or "released" (by the caller).
+     */
+    public boolean release(String reservationId, String reason) {
+        boolean released = reservationLedger.release(reservationId);
+        if (released) {
+            meterRegistry.counter("inventory.reservations.released", "reason", reason).increment();
+        }
+        return released;
+    }
+
+    /**
+     * Releases part of a reservation: the lines of one order of a batch that shared it, or what the caller won't use.
+     *
+     * @param releaseKey See ReservationLedger.release(String, String, Map), null to always apply.
+     */
+    public boolean release(String reservationId, String releaseKey, Map<String, Integer> quantities, String reason) {
+        boolean released = reservationLedger.release(reservationId, releaseKey, quantities);
+        if (released) {
+            meterRegistry.counter("inventory.reservations.released", "reason", reason).increment();
+        }
+        return released;
+    }
+
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval-ms:1000}")
+    public void expireReservations() {
+        long now = System.currentTimeMillis();
+        // Holds placed after that point may belong to orders whose event hasn't been applied yet
+        long placedBefore = Math.max(consumerMetrics.placedEventsAppliedThrough() - CLOCK_SKEW_MS, now - maxTtlMs);
+        int expired = reservationLedger.expire(now, placedBefore);
+        if (expired > 0) {
+            expiredCounter.increment(expired);
+            log.debug("Expired {} stock reservations", expired);
+        }
+    }
+}
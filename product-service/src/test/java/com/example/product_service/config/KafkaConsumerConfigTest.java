@@ -0,0 +1,98 @@
+package com.example.product_service.config;
+
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.exception.ReplyFailedException;
+import com.example.product_service.kafka.ConsumerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Drives the consumer error handler directly, as the listener container does after a failed delivery
+class KafkaConsumerConfigTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("order_placed", 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DefaultErrorHandler errorHandler =
+            KafkaConsumerConfig.errorHandler(1, 2, new ConsumerMetrics(meterRegistry));
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, OrderMessage> consumer = mock(Consumer.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+
+    private final ConsumerRecord<String, OrderMessage> record =
+            new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), 42, "1", new OrderMessage());
+
+    @BeforeEach
+    void runningContainer() {
+        when(container.isRunning()).thenReturn(true);
+        when(container.getContainerProperties()).thenReturn(new ContainerProperties(PARTITION.topic()));
+    }
+
+    @Test
+    void transientFailureIsRetriedUntilItSucceeds() {
+        Exception failure = new ListenerExecutionFailedException("Listener failed",
+                new CannotCreateTransactionException("Database unavailable"));
+
+        for (int attempt = 1; attempt <= 20; attempt++) {
+            handle(failure);
+        }
+
+        // Seeked back every time: the record is delivered again instead of being skipped
+        verify(consumer, times(20)).seek(PARTITION, 42);
+        assertEquals(20, count("inventory.consumer.failures"));
+        assertEquals(0, count("inventory.consumer.skipped"));
+    }
+
+    @Test
+    void failedSagaReplyIsRetriedWhateverItsCause() {
+        handle(new ListenerExecutionFailedException("Listener failed", new ReplyFailedException(
+                "Unable to send inventory_reserved", new SerializationException("Can't serialize reply"))));
+
+        verify(consumer).seek(PARTITION, 42);
+        assertEquals(0, count("inventory.consumer.skipped"));
+    }
+
+    @Test
+    void invalidRecordIsSkippedWithoutRetries() {
+        handle(new ListenerExecutionFailedException("Listener failed",
+                new IllegalArgumentException("Every item needs a skuCode and a positive quantity")));
+
+        verify(consumer, never()).seek(eq(PARTITION), anyLong());
+        assertEquals(1, count("inventory.consumer.skipped"));
+    }
+
+    private void handle(Exception failure) {
+        try {
+            errorHandler.handleRemaining(failure, List.of(record), consumer, container);
+        } catch (KafkaException e) {
+            // Thrown after seeking back, the container logs it and polls the record again
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.product_service.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConsumerMetricsTest {
+
+    private final ConsumerMetrics consumerMetrics = new ConsumerMetrics(new SimpleMeterRegistry());
+    private final ConsumerRebalanceListener rebalanceListener = consumerMetrics.placedPartitionsListener();
+
+    @Test
+    void newlyAssignedPartitionHoldsBackUntilItsEventsAreApplied() {
+        rebalanceListener.onPartitionsAssigned(List.of(placed(0)));
+        consumerMetrics.recordOrderApplied(placedEvent(0, 1_000));
+        assertEquals(1_000, consumerMetrics.placedEventsAppliedThrough());
+
+        // Assigned after a rebalance, with a backlog of older orders
+        rebalanceListener.onPartitionsAssigned(List.of(placed(1), new TopicPartition("order_cancelled", 1)));
+        consumerMetrics.recordOrderApplied(placedEvent(0, 2_000));
+        assertEquals(0, consumerMetrics.placedEventsAppliedThrough());
+
+        consumerMetrics.recordOrderApplied(placedEvent(1, 1_500));
+        assertEquals(1_500, consumerMetrics.placedEventsAppliedThrough());
+    }
+
+    @Test
+    void revokedPartitionNoLongerHoldsBack() {
+        rebalanceListener.onPartitionsAssigned(List.of(placed(0), placed(1)));
+        consumerMetrics.recordOrderApplied(placedEvent(0, 1_000));
+        consumerMetrics.recordOrderApplied(placedEvent(1, 5_000));
+
+        rebalanceListener.onPartitionsRevoked(List.of(placed(0)));
+        assertEquals(5_000, consumerMetrics.placedEventsAppliedThrough());
+
+        // Finished after the revocation, the partition stays out
+        consumerMetrics.recordOrderApplied(placedEvent(0, 2_000));
+        assertEquals(5_000, consumerMetrics.placedEventsAppliedThrough());
+    }
+
+    private static TopicPartition placed(int partition) {
+        return new TopicPartition("order_placed", partition);
+    }
+
+    private static ConsumerRecord<String, Object> placedEvent(int partition, long createdAtMillis) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>("order_placed", partition, 0, "1", null);
+        record.headers().add(ConsumerMetrics.CREATED_AT_HEADER,
+                Long.toString(createdAtMillis).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.exception.ReplyFailedException;
+import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.service.ProcessedEventService;
+import com.example.product_service.service.ProductService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "product.consumer.mode=batch")
+@ActiveProfiles("test")
+class InventoryBatchConsumerTest {
+
+    private static final AtomicLong ORDER_IDS = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    private InventoryBatchConsumer inventoryBatchConsumer;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProcessedEventService processedEventService;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerEndpointRegistry;
+
+    // No broker to reply to
+    @MockitoBean
+    private OrderConfirmationHandler orderConfirmationHandler;
+
+    @Test
+    void batchListenerHonoursAutoStartup() {
+        // spring.kafka.listener.auto-startup=false in the test profile
+        assertFalse(listenerEndpointRegistry.getListenerContainers().isEmpty());
+        listenerEndpointRegistry.getListenerContainers()
+                .forEach(container -> assertFalse(container.isRunning(), container.getListenerId()));
+    }
+
+    @Test
+    void failedConfirmationIsRetriedFromItsOwnRecord() {
+        String skuCode = createProduct(10);
+        long placed = ORDER_IDS.incrementAndGet();
+        long pending = ORDER_IDS.incrementAndGet();
+        ConsumerRecord<String, OrderMessage> confirmation = record("order_placed", 1, order(pending, item(skuCode, 1)));
+        confirmation.headers().add(OrderConfirmationHandler.CONFIRMATION_HEADER, "requested".getBytes(StandardCharsets.UTF_8));
+        when(orderConfirmationHandler.confirm(any())).thenThrow(new ReplyFailedException("Broker unavailable", null));
+
+        BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+                () -> inventoryBatchConsumer.consumeBatch(List.of(
+                        record("order_placed", 0, order(placed, item(skuCode, 2))), confirmation)));
+
+        // The record before it is finished and its offset can be committed, the batch comes again from the confirmation
+        assertSame(confirmation, failure.getRecord());
+        assertEquals(8, stockOf(skuCode));
+        assertTrue(processedEventService.isProcessed(ProcessedEventService.eventKey("placed", placed, skuCode)));
+    }
+
+    @Test
+    void rejectedNetReductionFallsBackToOrdersOneByOne() {
+        String plenty = createProduct(10);
+        String scarce = createProduct(1);
+        long tooLarge = ORDER_IDS.incrementAndGet();
+        long cancelled = ORDER_IDS.incrementAndGet();
+        long unrelated = ORDER_IDS.incrementAndGet();
+        // Net reduction of the scarce SKU is 2, more than its stock
+        List<ConsumerRecord<String, OrderMessage>> batch = List.of(
+                record("order_placed", 0, order(tooLarge, item(scarce, 3), item(plenty, 1))),
+                record("order_cancelled", 1, order(cancelled, item(scarce, 1))),
+                record("order_placed", 2, order(unrelated, item(plenty, 2))));
+
+        inventoryBatchConsumer.consumeBatch(batch);
+        // The restock and the unrelated order are applied, the order short on stock changes nothing
+        assertEquals(8, stockOf(plenty));
+        assertEquals(2, stockOf(scarce));
+        assertTrue(processedEventService.isProcessed(ProcessedEventService.eventKey("cancelled", cancelled, scarce)));
+        assertFalse(processedEventService.isProcessed(ProcessedEventService.eventKey("placed", tooLarge, plenty)));
+        assertFalse(processedEventService.isProcessed(ProcessedEventService.eventKey("placed", tooLarge, scarce)));
+
+        // Redelivered batch: applied changes are not repeated
+        inventoryBatchConsumer.consumeBatch(batch);
+        assertEquals(8, stockOf(plenty));
+        assertEquals(2, stockOf(scarce));
+    }
+
+    private static ConsumerRecord<String, OrderMessage> record(String topic, long offset, OrderMessage order) {
+        return new ConsumerRecord<>(topic, 0, offset, String.valueOf(order.getOrderId()), order);
+    }
+
+    private static OrderMessage order(long orderId, OrderItemDto... items) {
+        OrderMessage order = new OrderMessage();
+        order.setOrderId(orderId);
+        order.setOrderItems(List.of(items));
+        return order;
+    }
+
+    private static OrderItemDto item(String skuCode, int quantity) {
+        return new OrderItemDto(null, skuCode, "Test product", quantity, BigDecimal.TEN);
+    }
+
+    private String createProduct(int quantity) {
+        String skuCode = "sku-" + UUID.randomUUID();
+        productService.createProduct(new ProductDto(null, "Test product", "Batch consumer test", skuCode, 10.0, quantity));
+        return skuCode;
+    }
+
+    private int stockOf(String skuCode) {
+        return productRepository.findBySkuCode(skuCode).orElseThrow().getQuantity();
+    }
+}
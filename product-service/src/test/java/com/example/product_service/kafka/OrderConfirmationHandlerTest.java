@@ -0,0 +1,78 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.exception.ReplyFailedException;
+import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderConfirmationHandlerTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    void replyLostAfterTheStockCommittedIsSentAgainOnRedelivery() {
+        OrderConfirmationHandler handler =
+                new OrderConfirmationHandler(productService, kafkaTemplate, new SimpleMeterRegistry());
+        String skuCode = createProduct(5);
+        long orderId = System.nanoTime();
+        OrderMessage order = new OrderMessage();
+        order.setOrderId(orderId);
+        order.setOrderItems(List.of(new OrderItemDto(null, skuCode, "Test product", 2, BigDecimal.TEN)));
+        when(kafkaTemplate.send(eq("inventory_reserved"), eq(String.valueOf(orderId)), any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Stock committed, reply lost: the record is not acknowledged
+        assertThrows(ReplyFailedException.class, () -> handler.confirm(order));
+        assertEquals(3, stockOf(skuCode));
+
+        // Redelivered by the error handler: the stock is not taken twice, the reply goes out. If order-service
+        // timed the order out meanwhile, this late reply makes it hand the stock back (OrderConfirmationService)
+        assertFalse(handler.confirm(order));
+        assertEquals(3, stockOf(skuCode));
+        verify(kafkaTemplate, times(2)).send(eq("inventory_reserved"), eq(String.valueOf(orderId)), any());
+    }
+
+    private String createProduct(int quantity) {
+        String skuCode = "sku-" + UUID.randomUUID();
+        productService.createProduct(new ProductDto(null, "Test product", "Confirmation handler test", skuCode, 10.0, quantity));
+        return skuCode;
+    }
+
+    private int stockOf(String skuCode) {
+        return productRepository.findBySkuCode(skuCode).orElseThrow().getQuantity();
+    }
+}
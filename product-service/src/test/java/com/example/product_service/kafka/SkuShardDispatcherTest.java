@@ -0,0 +1,114 @@
+package com.example.product_service.kafka;
+
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "product.consumer.dispatcher.shards=" + SkuShardDispatcherTest.SHARDS)
+@ActiveProfiles("test")
+class SkuShardDispatcherTest {
+
+    static final int SHARDS = 8;
+
+    private static final AtomicLong ORDER_IDS = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    private SkuShardDispatcher skuShardDispatcher;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void orderSpanningShardsIsAllOrNothing() {
+        String plenty = createProduct(10, -1);
+        String scarce = createProduct(1, shardOf(plenty));
+        long orderId = ORDER_IDS.incrementAndGet();
+
+        List<String> rejected = skuShardDispatcher.apply("placed", orderId, Map.of(plenty, -2, scarce, -2));
+        assertEquals(List.of(scarce), rejected);
+        assertEquals(10, stockOf(plenty));
+        assertEquals(1, stockOf(scarce));
+
+        long nextOrderId = ORDER_IDS.incrementAndGet();
+        assertTrue(skuShardDispatcher.apply("placed", nextOrderId, Map.of(plenty, -2, scarce, -1)).isEmpty());
+        // Redelivered event
+        assertTrue(skuShardDispatcher.apply("placed", nextOrderId, Map.of(plenty, -2, scarce, -1)).isEmpty());
+        assertEquals(8, stockOf(plenty));
+        assertEquals(0, stockOf(scarce));
+    }
+
+    @Test
+    void concurrentOrdersAcrossTheSameShardsNeitherDeadlockNorOversell() throws Exception {
+        int initialStock = 40;
+        int threads = 8;
+        int ordersPerThread = 20;
+        String first = createProduct(initialStock, -1);
+        String second = createProduct(initialStock, shardOf(first));
+
+        AtomicInteger applied = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    if (skuShardDispatcher.apply("placed", ORDER_IDS.incrementAndGet(), Map.of(first, -1, second, -1)).isEmpty()) {
+                        applied.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(initialStock, applied.get());
+        assertEquals(0, stockOf(first));
+        assertEquals(0, stockOf(second));
+    }
+
+    // Creates a product whose SKU is not on the given shard (-1: any shard)
+    private String createProduct(int quantity, int avoidShard) {
+        String skuCode;
+        do {
+            skuCode = "sku-" + UUID.randomUUID();
+        } while (shardOf(skuCode) == avoidShard);
+        productService.createProduct(new ProductDto(null, "Test product", "Shard dispatcher test", skuCode, 10.0, quantity));
+        return skuCode;
+    }
+
+    private static int shardOf(String skuCode) {
+        return Math.floorMod(skuCode.hashCode(), SHARDS);
+    }
+
+    private int stockOf(String skuCode) {
+        return productRepository.findBySkuCode(skuCode).orElseThrow().getQuantity();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.product_service.kafka.codec;
+
+import com.example.product_service.dto.OrderItemDto;
+import com.example.product_service.dto.OrderMessage;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderEventCodecTest {
+
+    private final OrderMessageDeserializer deserializer = new OrderMessageDeserializer();
+
+    @Test
+    void binaryRoundTrip() {
+        OrderMessage order = new OrderMessage();
+        order.setOrderId(7_300_000_000_000_000_123L);
+        order.setReservationId("r-1");
+        order.setOrderItems(List.of(
+                new OrderItemDto(1L, "SKU-1", "Phone", 2, new BigDecimal("199.99")),
+                new OrderItemDto(null, "SKU-2", null, 1, null)));
+
+        OrderMessage decoded = deserializer.deserialize("order_placed", binaryHeaders(), OrderEventCodec.encode(order));
+
+        assertEquals(order, decoded);
+    }
+
+    @Test
+    void skipsFieldsAddedByNewerProducers() {
+        // Order as written by order-service, with an extra item field and an extra order field appended
+        OrderEventCodec.Writer item = new OrderEventCodec.Writer().reset();
+        item.writeNullableLong(5L);
+        item.writeString("SKU-9");
+        item.writeString("Laptop");
+        item.writeVarLong(3);
+        item.writeDecimal(new BigDecimal("999.00"));
+        item.writeString("field added later");
+
+        OrderEventCodec.Writer out = new OrderEventCodec.Writer().reset();
+        out.writeByte(OrderEventCodec.VERSION_1);
+        out.writeNullableLong(42L);
+        out.writeDecimal(new BigDecimal("2997.00"));
+        out.writeDateTime(LocalDateTime.ofEpochSecond(1_760_000_000L, 5, ZoneOffset.UTC));
+        out.writeString(null);
+        out.writeVarLong(1);
+        out.writeVarLong(item.toByteArray().length);
+        out.writeBytes(item.toByteArray(), 0, item.toByteArray().length);
+        out.writeVarLong(123);
+
+        OrderMessage decoded = OrderEventCodec.decode(out.toByteArray());
+
+        assertEquals(42L, decoded.getOrderId());
+        assertNull(decoded.getReservationId());
+        assertEquals(1, decoded.getOrderItems().size());
+        assertEquals("SKU-9", decoded.getOrderItems().get(0).getSkuCode());
+        assertEquals(3, decoded.getOrderItems().get(0).getQuantity());
+        assertEquals(new BigDecimal("999.00"), decoded.getOrderItems().get(0).getPrice());
+    }
+
+    @Test
+    void fallsBackToJsonWithoutBinaryHeader() {
+        byte[] json = """
+                {"id":3,"totalPrice":10.5,"orderDate":"2026-01-01T10:00:00",
+                 "orderItems":[{"skuCode":"SKU-1","quantity":4}],"reservationId":"r-2"}
+                """.getBytes(StandardCharsets.UTF_8);
+
+        OrderMessage decoded = deserializer.deserialize("order_placed", new RecordHeaders(), json);
+
+        assertEquals(3L, decoded.getOrderId());
+        assertEquals("r-2", decoded.getReservationId());
+        assertEquals("SKU-1", decoded.getOrderItems().get(0).getSkuCode());
+        assertEquals(4, decoded.getOrderItems().get(0).getQuantity());
+    }
+
+    private static RecordHeaders binaryHeaders() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(OrderEventCodec.FORMAT_HEADER, OrderEventCodec.BINARY_V1.getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+}
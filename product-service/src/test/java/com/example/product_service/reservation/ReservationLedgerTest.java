@@ -0,0 +1,133 @@
+package com.example.product_service.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationLedgerTest {
+
+    @Test
+    void concurrentReservationsNeverHoldMoreThanTheStock() throws Exception {
+        int stock = 50;
+        int threads = 16;
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+
+        AtomicInteger held = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    ReservationLedger.Reservation reservation = ledger.reserve(Map.of("SKU-1", 1),
+                            skuCodes -> {
+                                // Widen the window between reading the stock and placing the hold
+                                Thread.yield();
+                                return stock("SKU-1", stock);
+                            }, 60_000, false);
+                    held.addAndGet(reservation.quantities().getOrDefault("SKU-1", 0));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(stock, held.get());
+        assertEquals(stock, ledger.activeReservations());
+    }
+
+    @Test
+    void releasedHoldsAreFreeAgain() {
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+        ReservationLedger.Reservation first = ledger.reserve(Map.of("SKU-1", 3), skuCodes -> stock("SKU-1", 3), 60_000, false);
+        assertTrue(ledger.reserve(Map.of("SKU-1", 1), skuCodes -> stock("SKU-1", 3), 60_000, false).quantities().isEmpty());
+
+        assertTrue(ledger.release(first.id()));
+        assertEquals(Map.of("SKU-1", 1),
+                ledger.reserve(Map.of("SKU-1", 1), skuCodes -> stock("SKU-1", 3), 60_000, false).quantities());
+    }
+
+    @Test
+    void eachOrderReleasesOnlyItsOwnLinesOnce() {
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+        // One reservation shared by two orders of a batch, 2 + 3 units
+        ReservationLedger.Reservation batch = ledger.reserve(Map.of("SKU-1", 5), skuCodes -> stock("SKU-1", 5), 60_000, false);
+
+        assertTrue(ledger.release(batch.id(), "order:1", Map.of("SKU-1", 2)));
+        // Redelivered event for the same order
+        assertTrue(ledger.release(batch.id(), "order:1", Map.of("SKU-1", 2)));
+        assertEquals(Map.of("SKU-1", 2),
+                ledger.reserve(Map.of("SKU-1", 2), skuCodes -> stock("SKU-1", 5), 60_000, false).quantities());
+
+        assertTrue(ledger.release(batch.id(), "order:2", Map.of("SKU-1", 3)));
+        assertFalse(ledger.release(batch.id(), "order:2", Map.of("SKU-1", 3)));
+    }
+
+    @Test
+    void stockIsLoadedOnceAndKeptCurrentByNewerVersions() {
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        Function<Collection<String>, Map<String, ReservationLedger.Stock>> loader = skuCodes -> {
+            loads.incrementAndGet();
+            return Map.of("SKU-1", new ReservationLedger.Stock(5, 3));
+        };
+
+        assertEquals(Map.of("SKU-1", 2), ledger.reserve(Map.of("SKU-1", 2), loader, 60_000, false).quantities());
+        // Committed change of another order, an update arriving late with an older version is ignored
+        ledger.updateStock("SKU-1", 3, 4);
+        ledger.updateStock("SKU-1", 5, 3);
+        assertTrue(ledger.reserve(Map.of("SKU-1", 2), loader, 60_000, false).quantities().isEmpty());
+        assertEquals(Map.of("SKU-1", 1), ledger.reserve(Map.of("SKU-1", 1), loader, 60_000, false).quantities());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void holdsPlacedAfterTheAppliedEventsDoNotExpire() {
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+        ReservationLedger.Reservation reservation =
+                ledger.reserve(Map.of("SKU-1", 1), skuCodes -> stock("SKU-1", 1), 0, false);
+        long now = System.currentTimeMillis() + 1;
+
+        // Its order's event may still be on the way
+        assertEquals(0, ledger.expire(now, reservation.expiresAtMillis()));
+        assertEquals(1, ledger.activeReservations());
+        assertEquals(1, ledger.expire(now, now + 1));
+        assertEquals(0, ledger.activeReservations());
+    }
+
+    @Test
+    void nonPositiveQuantitiesAreRejected() {
+        ReservationLedger ledger = new ReservationLedger(4, 60_000);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ledger.reserve(Map.of("SKU-1", 0), skuCodes -> stock("SKU-1", 10), 60_000, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> ledger.reserve(Map.of("SKU-1", -5), skuCodes -> stock("SKU-1", 10), 60_000, true));
+        assertEquals(0, ledger.activeReservations());
+    }
+
+    private static Map<String, ReservationLedger.Stock> stock(String skuCode, int quantity) {
+        return Map.of(skuCode, new ReservationLedger.Stock(quantity, 0));
+    }
+}
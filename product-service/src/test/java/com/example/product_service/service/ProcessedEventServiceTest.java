@@ -0,0 +1,131 @@
+package com.example.product_service.service;
+
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A tiny, over-full Bloom filter, so keys that were never stored still pass it and go to the database
+@SpringBootTest(properties = {
+        "product.idempotency.filter.expected-keys=1",
+        "product.idempotency.filter.false-positive-rate=0.5"
+})
+@ActiveProfiles("test")
+class ProcessedEventServiceTest {
+
+    @Autowired
+    private ProcessedEventService processedEventService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void duplicateDeliveryIsRecognisedAndCannotBeStoredTwice() {
+        String skuCode = createProduct(10);
+        String eventKey = ProcessedEventService.eventKey("placed", 1L, skuCode);
+
+        productService.applyOrderDeltas(Map.of(skuCode, -2), List.of(eventKey));
+        assertTrue(processedEventService.isProcessed(eventKey));
+
+        // A second delivery that skipped the check is rolled back by the key's primary key
+        assertThrows(DataIntegrityViolationException.class,
+                () -> productService.applyOrderDeltas(Map.of(skuCode, -2), List.of(eventKey)));
+        assertEquals(8, stockOf(skuCode));
+    }
+
+    @Test
+    void orderStockIsReservedOnceWhicheverOfItsKeysIsStored() {
+        String first = createProduct(10);
+        String second = createProduct(10);
+        long orderId = System.nanoTime();
+        // The placed event of one of the order's lines was already applied
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                processedEventService.markProcessed(List.of(ProcessedEventService.eventKey("placed", orderId, second))));
+
+        assertFalse(productService.reserveOrderStock(orderId, Map.of(first, 2, second, 3)));
+        assertEquals(10, stockOf(first));
+
+        long nextOrderId = orderId + 1;
+        assertTrue(productService.reserveOrderStock(nextOrderId, Map.of(first, 2, second, 3)));
+        // Redelivered event
+        assertFalse(productService.reserveOrderStock(nextOrderId, Map.of(second, 3, first, 2)));
+        assertEquals(8, stockOf(first));
+        assertEquals(7, stockOf(second));
+    }
+
+    @Test
+    void bloomFilterFalsePositiveFallsThroughToTheDatabase() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < 20; i++) {
+            List<String> keys = List.of("placed:" + i + ":" + UUID.randomUUID());
+            transaction.executeWithoutResult(status -> processedEventService.markProcessed(keys));
+        }
+        double falsePositives = meterRegistry.counter("inventory.events.filter.false.positives").count();
+
+        assertFalse(processedEventService.isProcessed("placed:0:never-stored"));
+        assertEquals(falsePositives + 1, meterRegistry.counter("inventory.events.filter.false.positives").count());
+    }
+
+    @Test
+    void keysAreOnlyStoredInsideTheCallersTransaction() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> processedEventService.markProcessed(List.of("placed:2:" + UUID.randomUUID())));
+    }
+
+    @Test
+    void purgeDropsKeysPastTheRetentionPeriod() {
+        String oldKey = "placed:3:" + UUID.randomUUID();
+        String recentKey = "placed:4:" + UUID.randomUUID();
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> processedEventService.markProcessed(List.of(oldKey, recentKey)));
+        jdbcTemplate.update("UPDATE processed_events SET processed_at = ? WHERE event_key = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(30))), oldKey);
+
+        processedEventService.purge();
+
+        assertFalse(processedEventService.isProcessed(oldKey));
+        assertTrue(processedEventService.isProcessed(recentKey));
+    }
+
+    private String createProduct(int quantity) {
+        String skuCode = "sku-" + UUID.randomUUID();
+        productService.createProduct(new ProductDto(null, "Test product", "Idempotency test", skuCode, 10.0, quantity));
+        return skuCode;
+    }
+
+    private int stockOf(String skuCode) {
+        return productRepository.findBySkuCode(skuCode).orElseThrow().getQuantity();
+    }
+}
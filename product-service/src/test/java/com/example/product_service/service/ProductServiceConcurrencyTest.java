@@ -0,0 +1,153 @@
+package com.example.product_service.service;
+
+import com.example.product_service.dto.ProductDto;
+import com.example.product_service.entity.Product;
+import com.example.product_service.exception.InsufficientStockException;
+import com.example.product_service.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductServiceConcurrencyTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentReductionsNeverLoseStockOrGoNegative() throws Exception {
+        int initialStock = 100;
+        int threads = 16;
+        int attemptsPerThread = 50;
+        String skuCode = createProduct(initialStock);
+
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        productService.reduceProductQuantity(skuCode, 1);
+                        applied.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(initialStock, applied.get());
+        assertEquals(threads * attemptsPerThread - initialStock, rejected.get());
+        assertEquals(0, stockOf(skuCode));
+    }
+
+    @Test
+    void concurrentReductionsAndRestoresKeepStockConsistent() throws Exception {
+        int initialStock = 50;
+        int threads = 8;
+        int rounds = 100;
+        String skuCode = createProduct(initialStock);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+
+        // Every successful reduction is paired with a restore, so stock must end where it started
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    try {
+                        productService.reduceProductQuantity(skuCode, 3);
+                    } catch (InsufficientStockException e) {
+                        continue;
+                    }
+                    productService.increaseProductQuantity(skuCode, 3);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(initialStock, stockOf(skuCode));
+    }
+
+    @Test
+    void multiSkuReductionIsAllOrNothing() {
+        String plenty = createProduct(10);
+        String scarce = createProduct(1);
+
+        assertThrows(InsufficientStockException.class,
+                () -> productService.reduceProductQuantities(Map.of(plenty, 2, scarce, 2)));
+        assertEquals(10, stockOf(plenty));
+        assertEquals(1, stockOf(scarce));
+
+        productService.reduceProductQuantities(Map.of(plenty, 2, scarce, 1));
+        assertEquals(8, stockOf(plenty));
+        assertEquals(0, stockOf(scarce));
+    }
+
+    @Test
+    void productUpdateSetsStockAsOneVersionWithoutUndoingOtherChanges() {
+        String skuCode = createProduct(10);
+        Product loaded = productRepository.findBySkuCode(skuCode).orElseThrow();
+
+        productService.reduceProductQuantity(skuCode, 3);
+        productService.updateProduct(loaded.getId(),
+                new ProductDto(loaded.getId(), "Renamed", loaded.getDescription(), skuCode, loaded.getPrice(), 7));
+        Product updated = productRepository.findBySkuCode(skuCode).orElseThrow();
+        assertEquals(7, updated.getQuantity());
+        assertEquals("Renamed", updated.getName());
+        // The stock already was 7, only the decrement counted as a stock change
+        assertEquals(loaded.getStockVersion() + 1, updated.getStockVersion());
+
+        productService.updateProduct(loaded.getId(),
+                new ProductDto(loaded.getId(), "Renamed", loaded.getDescription(), skuCode, loaded.getPrice(), 20));
+        assertEquals(20, stockOf(skuCode));
+        assertEquals(loaded.getStockVersion() + 2, productRepository.findBySkuCode(skuCode).orElseThrow().getStockVersion());
+    }
+
+    private String createProduct(int quantity) {
+        String skuCode = "sku-" + UUID.randomUUID();
+        productService.createProduct(new ProductDto(null, "Test product", "Concurrency test", skuCode, 10.0, quantity));
+        return skuCode;
+    }
+
+    private int stockOf(String skuCode) {
+        return productRepository.findBySkuCode(skuCode).orElseThrow().getQuantity();
+    }
+}